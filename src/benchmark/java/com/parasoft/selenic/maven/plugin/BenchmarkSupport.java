@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Creates the files used by the benchmarks: impacted tests files, populated
+ * work folders, and a Selenic installation whose coverage tool is
+ * {@link StubCovtool}.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    static void writeListFile(Path listFile, int testCount) throws IOException {
+        Files.createDirectories(listFile.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(listFile, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < testCount; i++) {
+                writer.write(StubCovtool.testName(i));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Creates a work folder like the one left by a coverage tool run, with
+     * {@code fileCount} files spread over folders of 100 files.
+     */
+    static void populateWorkDir(Path workDir, int fileCount) throws IOException {
+        byte[] content = new byte[512];
+        for (int i = 0; i < fileCount; i++) {
+            Path file = workDir.resolve(".coverage").resolve("dir" + i / 100).resolve("file" + i + ".dat"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+        }
+    }
+
+    /**
+     * Creates a Selenic installation whose {@code jtestcov.jar} runs
+     * {@link StubCovtool}.
+     */
+    static Path createStubSelenicInstallation(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Files.createFile(dir.resolve("selenic_agent.jar")); //$NON-NLS-1$
+        Files.createFile(dir.resolve("selenic_analyzer.jar")); //$NON-NLS-1$
+        Path covtoolJar = dir.resolve("coverage").resolve("Java").resolve("jtestcov").resolve("jtestcov.jar"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        Files.createDirectories(covtoolJar.getParent());
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0"); //$NON-NLS-1$
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, StubCovtool.class.getName());
+        String classFile = StubCovtool.class.getName().replace('.', '/') + ".class"; //$NON-NLS-1$
+        try (OutputStream out = Files.newOutputStream(covtoolJar);
+                JarOutputStream jar = new JarOutputStream(out, manifest);
+                InputStream in = StubCovtool.class.getClassLoader().getResourceAsStream(classFile)) {
+            jar.putNextEntry(new JarEntry(classFile));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                jar.write(buffer, 0, read);
+            }
+            jar.closeEntry();
+        }
+        return dir;
+    }
+
+    static MavenProject createProject(Path buildDir) {
+        MavenProject project = new MavenProject();
+        Build build = new Build();
+        build.setDirectory(buildDir.toString());
+        project.setBuild(build);
+        return project;
+    }
+
+    /**
+     * Sets a field of a mojo as Maven would inject a parameter.
+     */
+    static void setField(Object mojo, String name, Object value) throws ReflectiveOperationException {
+        for (Class<?> type = mojo.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(mojo, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // declared in a superclass
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.surefire.api.testset.TestListResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading impacted tests files and turning impacted tests into surefire
+ * patterns and parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImpactedTestsBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int testCount;
+
+    private Path workDir;
+
+    private Path listFile;
+
+    private List<String> impactedTests;
+
+    private List<String> patterns;
+
+    @Setup
+    public void setUp() throws IOException, MojoExecutionException {
+        workDir = Files.createTempDirectory("selenic-benchmark"); //$NON-NLS-1$
+        listFile = ImpactedTests.getListFile(workDir);
+        BenchmarkSupport.writeListFile(listFile, testCount);
+        impactedTests = ImpactedTests.read(listFile);
+        patterns = ImpactedTests.toPatterns(impactedTests, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        AbstractCoverageMojo.delete(workDir);
+    }
+
+    @Benchmark
+    public List<String> readListFile() throws MojoExecutionException {
+        return ImpactedTests.read(listFile);
+    }
+
+    @Benchmark
+    public List<String> toPatterns() {
+        return ImpactedTests.toPatterns(impactedTests, null);
+    }
+
+    @Benchmark
+    public String testListResolver() {
+        return new TestListResolver(patterns).getPluginParameterTest();
+    }
+}
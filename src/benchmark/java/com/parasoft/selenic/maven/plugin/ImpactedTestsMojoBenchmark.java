@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assembling the coverage tool command, and executing the
+ * {@code impacted-tests} goal end to end with {@link StubCovtool} as the
+ * coverage tool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImpactedTestsMojoBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int testCount;
+
+    private Path dir;
+
+    private Path covtoolJar;
+
+    private File baseline;
+
+    private ImpactedTestsMojo mojo;
+
+    private MavenProject project;
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        dir = Files.createTempDirectory("selenic-benchmark"); //$NON-NLS-1$
+        Path selenicHome = BenchmarkSupport.createStubSelenicInstallation(dir.resolve("selenic")); //$NON-NLS-1$
+        covtoolJar = selenicHome.resolve("coverage").resolve("Java").resolve("jtestcov").resolve("jtestcov.jar"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        Path app = Files.createDirectories(dir.resolve("app")); //$NON-NLS-1$
+        baseline = Files.write(dir.resolve("baseline.xml"), Collections.singletonList("<Coverage></Coverage>")) //$NON-NLS-1$ //$NON-NLS-2$
+                .toFile();
+        project = BenchmarkSupport.createProject(dir.resolve("target")); //$NON-NLS-1$
+        mojo = new ImpactedTestsMojo();
+        mojo.setLog(new SilentLog());
+        BenchmarkSupport.setField(mojo, "project", project); //$NON-NLS-1$
+        BenchmarkSupport.setField(mojo, "selenicHome", selenicHome.toFile()); //$NON-NLS-1$
+        BenchmarkSupport.setField(mojo, "app", app.toFile()); //$NON-NLS-1$
+        BenchmarkSupport.setField(mojo, "baseline", baseline); //$NON-NLS-1$
+        BenchmarkSupport.setField(mojo, "vmArgs", Arrays.asList("-Dstub.tests=" + testCount)); //$NON-NLS-1$ //$NON-NLS-2$
+        BenchmarkSupport.setField(mojo, "includes", Arrays.asList("com/example/**")); //$NON-NLS-1$ //$NON-NLS-2$
+        BenchmarkSupport.setField(mojo, "excludes", Arrays.asList("**/*Generated")); //$NON-NLS-1$ //$NON-NLS-2$
+        BenchmarkSupport.setField(mojo, "shardCount", 1); //$NON-NLS-1$
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        AbstractCoverageMojo.delete(dir);
+    }
+
+    @Benchmark
+    public List<String> buildCommand() throws MojoExecutionException {
+        return mojo.buildCommand("java", covtoolJar, null, null); //$NON-NLS-1$
+    }
+
+    @Benchmark
+    public String execute() throws MojoExecutionException {
+        mojo.execute();
+        return project.getProperties().getProperty("test"); //$NON-NLS-1$
+    }
+}
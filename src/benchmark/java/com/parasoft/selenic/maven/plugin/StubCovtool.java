@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Stands in for the coverage tool in benchmarks: writes a synthetic impacted
+ * tests file with the number of tests given by the {@code stub.tests} system
+ * property to {@code .coverage/lsts/impacted_tests.lst} in the working
+ * directory. Packaged as {@code jtestcov.jar} by {@link BenchmarkSupport}, so
+ * it must not depend on other classes.
+ */
+public final class StubCovtool {
+
+    private StubCovtool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int testCount = Integer.getInteger("stub.tests", 1000); //$NON-NLS-1$
+        Path listFile = Paths.get(".coverage", "lsts", "impacted_tests.lst"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        Files.createDirectories(listFile.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(listFile, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < testCount; i++) {
+                writer.write(testName(i));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns a synthetic test name: 100 test classes per package, with every
+     * third test naming a test method.
+     */
+    static String testName(int i) {
+        String className = "com.example.pkg" + i / 100 + ".Class" + i + "Test"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        return i % 3 == 0 ? className + "#test" + i : className; //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deleting a populated coverage tool work folder, as done before every scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WorkDirBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int fileCount;
+
+    private Path parentDir;
+
+    private Path workDir;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        parentDir = Files.createTempDirectory("selenic-benchmark"); //$NON-NLS-1$
+        workDir = parentDir.resolve("covtool"); //$NON-NLS-1$
+        BenchmarkSupport.populateWorkDir(workDir, fileCount);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        AbstractCoverageMojo.delete(parentDir);
+    }
+
+    @Benchmark
+    public void delete() throws IOException {
+        AbstractCoverageMojo.delete(workDir);
+    }
+}
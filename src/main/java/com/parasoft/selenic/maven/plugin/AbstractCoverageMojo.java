@@ -17,19 +17,38 @@
 package com.parasoft.selenic.maven.plugin;
 
 import static java.lang.System.lineSeparator;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.maven.plugin.MojoExecutionException;
@@ -105,8 +124,190 @@ public abstract class AbstractCoverageMojo extends AbstractSelenicMojo {
     @Parameter(property = "selenic.coverage.binaries.excludes")
     private List<String> excludes;
 
+    /**
+     * Skips scanning the application when none of the inputs changed since the
+     * previous run and reuses the results of that run. The inputs are the
+     * application binaries, the coverage tool, the settings, the properties,
+     * the include and exclude patterns, the options that change how the
+     * application is scanned ({@code expandArchives}, {@code incrementalScan},
+     * {@code incrementalScanMaxClasses}, {@code partitionedScan} and
+     * {@code scanPartitions}), and the goal specific inputs such as the
+     * baseline.
+     */
+    @Parameter(property = "selenic.coverage.skipIfUpToDate", defaultValue = "true")
+    private boolean skipIfUpToDate; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Runs the coverage tool in a long-lived background process that is reused
+     * by later runs with the same coverage tool, Java and {@code vmArgs}, instead
+     * of starting a new JVM for every run. Falls back to starting a new JVM when
+     * the background process cannot be used.
+     */
+    @Parameter(property = "selenic.coverage.daemon", defaultValue = "false")
+    private boolean daemon; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the number of minutes after which an unused coverage tool
+     * background process stops.
+     */
+    @Parameter(property = "selenic.coverage.daemon.idleTimeout", defaultValue = "180")
+    private int daemonIdleTimeout; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Runs the coverage tool inside the Maven JVM instead of starting a new JVM.
+     * The coverage tool is loaded once per Selenic installation and shared by
+     * all modules of the build; runs are serialized, as the coverage tool writes
+     * its results to the working directory of the Maven JVM. The {@code vmArgs}
+     * are ignored. Falls back to starting a new JVM when the coverage tool cannot
+     * be run inside the Maven JVM. Ignored when {@code daemon} is enabled.
+     */
+    @Parameter(property = "selenic.coverage.inProcess", defaultValue = "false")
+    private boolean inProcess; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Scans only the classes of the application that changed since the latest
+     * full scan against the same baseline and settings, and adds the tests
+     * impacted by them to the tests found by that full scan. Changes are
+     * detected with bytecode fingerprints that ignore debug information. The
+     * coverage tool is not run at all when no class changed. A full scan is done
+     * when classes were removed or more than {@code incrementalScanMaxClasses}
+     * classes changed.
+     */
+    @Parameter(property = "selenic.coverage.incrementalScan", defaultValue = "false")
+    private boolean incrementalScan; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the maximum number of changed classes scanned by
+     * {@code incrementalScan}. Every changed class is passed to the coverage tool
+     * in an {@code -include} argument, so a full scan is done beyond it to keep
+     * the command line within its length limits.
+     */
+    @Parameter(property = "selenic.coverage.incrementalScan.maxClasses", defaultValue = "1000")
+    private int incrementalScanMaxClasses; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the folder where the bytecode fingerprints and the results of
+     * the latest full scan against each baseline are kept for
+     * {@code incrementalScan}.
+     */
+    @Parameter(property = "selenic.coverage.fingerprintsDirectory", defaultValue = "${project.build.directory}/selenic/fingerprints")
+    private File fingerprintsDirectory;
+
+    /**
+     * Sets the metrics written to {@code target/covtool/selenic-metrics.json},
+     * such as the durations of the phases in milliseconds, as project
+     * properties named {@code selenic.metrics.<name>} and
+     * {@code selenic.metrics.phases.<phase>}.
+     */
+    @Parameter(property = "selenic.metrics.export", defaultValue = "false")
+    private boolean exportMetrics; // parasoft-suppress OPT.CTLV "injected"
+
+    private static final String FINGERPRINT_FILE = "inputs.sha256"; //$NON-NLS-1$
+
+    /**
+     * Specifies the maximum number of coverage tool processes that run at the
+     * same time in a parallel build. Defaults to the number of available
+     * processors.
+     */
+    @Parameter(property = "selenic.coverage.maxConcurrentForks", defaultValue = "0")
+    private int maxConcurrentForks; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the memory, in megabytes, that the coverage tool processes
+     * running at the same time in a parallel build may use together. A process
+     * is counted with its maximum heap, set with {@code -Xmx} in {@code vmArgs}
+     * or a quarter of the physical memory by default, plus 256 MB. Processes
+     * wait in turn until they fit. Defaults to three quarters of the physical
+     * memory.
+     */
+    @Parameter(property = "selenic.coverage.forkMemoryBudget", defaultValue = "0")
+    private int forkMemoryBudget; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Starts the coverage tool JVM faster with a Class Data Sharing archive of
+     * the coverage tool classes, created by a first run and used by the next
+     * runs with the same coverage tool, Java and {@code vmArgs}. An archive is
+     * deleted when the JVM reports that it cannot use it. Requires Java 13 or
+     * later and applies only when the coverage tool runs in a new JVM for each
+     * run.
+     */
+    @Parameter(property = "selenic.coverage.classDataSharing", defaultValue = "false")
+    private boolean classDataSharing; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the folder where the Class Data Sharing archives of
+     * {@code classDataSharing} are kept.
+     */
+    @Parameter(property = "selenic.coverage.classDataSharingDirectory", defaultValue = "${user.home}/.selenic/cds")
+    private File classDataSharingDirectory;
+
+    /**
+     * Scans the application with several coverage tool processes at the same
+     * time, each scanning some of the packages, and merges their impacted
+     * tests. Speeds up scanning large applications on machines with many cores.
+     * Every process uses the memory given in {@code vmArgs}. One more process
+     * scans the classes deleted since the baseline. Applies to full
+     * scans that start a new JVM for each run, not to {@code daemon} or
+     * {@code inProcess} runs.
+     */
+    @Parameter(property = "selenic.coverage.partitionedScan", defaultValue = "false")
+    private boolean partitionedScan; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the number of processes of {@code partitionedScan}. Defaults to
+     * {@code maxConcurrentForks}, lowered to the number of processes that fit in
+     * {@code forkMemoryBudget}.
+     */
+    @Parameter(property = "selenic.coverage.scanPartitions", defaultValue = "0")
+    private int scanPartitions; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Expands the application archive, when {@code app} is a .war, .ear, .jar or
+     * .zip file, and its nested archives into
+     * {@code target/selenic/expanded} and scans that folder instead. Every
+     * archive is expanded once into {@code archiveCacheDirectory} and only the
+     * archives whose content changed are updated on later runs. Nested archives
+     * become folders with the same names, and those without classes matched
+     * by {@code includes} and {@code excludes}, such as third-party libraries,
+     * are left out. The archive is scanned as is when the baseline was recorded
+     * against it, that is when the baseline mentions its file name.
+     */
+    @Parameter(property = "selenic.coverage.expandArchives", defaultValue = "false")
+    private boolean expandArchives; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the folder where the archives of {@code expandArchives} are
+     * expanded, under the hash of their content.
+     */
+    @Parameter(property = "selenic.coverage.archiveCacheDirectory", defaultValue = "${user.home}/.selenic/archives")
+    private File archiveCacheDirectory;
+
+    /**
+     * Specifies a folder where the impacted tests found for given inputs are
+     * kept and looked up before running the coverage tool, for example on a
+     * volume shared by CI agents. Entries are keyed by the content of the
+     * inputs listed for {@code skipIfUpToDate}, not by their paths, so builds
+     * in other folders or on other machines share them. Disabled if not
+     * specified.
+     */
+    @Parameter(property = "selenic.coverage.resultCacheDirectory")
+    private File resultCacheDirectory;
+
+    /**
+     * Specifies the maximum size, in megabytes, of {@code resultCacheDirectory}.
+     * The least recently used entries are removed beyond it.
+     */
+    @Parameter(property = "selenic.coverage.resultCacheMaxSize", defaultValue = "1024")
+    private int resultCacheMaxSize; // parasoft-suppress OPT.CTLV "injected"
+
     private final String coverageCommand;
 
+    private File scannedApp;
+
+    private RunMetrics metrics = new RunMetrics();
+
+    private long executionStartNanos;
+
     AbstractCoverageMojo(String coverageCommand) {
         this.coverageCommand = coverageCommand;
     }
@@ -114,6 +315,55 @@ public abstract class AbstractCoverageMojo extends AbstractSelenicMojo {
     @Override
     protected void doExecute(File settingsFile) throws MojoExecutionException {
         Log log = getLog();
+        Path covtoolWorkDir = analyze(log, settingsFile);
+        doOtherWork(log, covtoolWorkDir);
+        writeMetrics(log, covtoolWorkDir);
+    }
+
+    /**
+     * Starts the analysis in a background thread and returns at once, so that
+     * the coverage tool runs while the build goes on. A later execution for the
+     * same project completes it with {@link #awaitAnalysis()}.
+     */
+    protected void startAnalysis(File settingsFile) {
+        Log log = getLog();
+        BackgroundAnalysis.start(project, metrics, () -> analyze(log, settingsFile));
+    }
+
+    /**
+     * Waits for the analysis started for the project in a background thread,
+     * then does the other work of the goal with its results.
+     *
+     * @return {@code false} if no analysis was started
+     */
+    protected boolean awaitAnalysis() throws MojoExecutionException {
+        BackgroundAnalysis analysis = BackgroundAnalysis.remove(project);
+        if (analysis == null) {
+            return false;
+        }
+        Log log = getLog();
+        // only the waiting adds to the build time
+        long start = System.nanoTime();
+        executionStartNanos = start;
+        Path covtoolWorkDir = analysis.await();
+        metrics = analysis.getMetrics();
+        long millis = (System.nanoTime() - start) / 1000000;
+        metrics.endPhase("await", start); //$NON-NLS-1$
+        log.info(Messages.get("analysis.awaited", millis)); //$NON-NLS-1$
+        doOtherWork(log, covtoolWorkDir);
+        writeMetrics(log, covtoolWorkDir);
+        return true;
+    }
+
+    /**
+     * Runs the coverage tool, unless its results are up to date or cached.
+     *
+     * @return the coverage tool working folder
+     */
+    private Path analyze(Log log, File settingsFile) throws MojoExecutionException {
+        long start = System.nanoTime();
+        executionStartNanos = start;
+        metrics.set("goal", coverageCommand); //$NON-NLS-1$
         Path covtoolJar = selenicHome.toPath().resolve("coverage").resolve("Java").resolve("jtestcov") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
                 .resolve("jtestcov.jar"); //$NON-NLS-1$
         if (!Files.exists(covtoolJar)) {
@@ -124,35 +374,527 @@ public abstract class AbstractCoverageMojo extends AbstractSelenicMojo {
         }
         File targetDir = new File(project.getBuild().getDirectory());
         Path covtoolWorkDir = targetDir.toPath().resolve("covtool"); //$NON-NLS-1$
-        try {
-            if (Files.exists(covtoolWorkDir)) {
-                delete(covtoolWorkDir);
+        Path fingerprintFile = covtoolWorkDir.resolve(FINGERPRINT_FILE);
+        metrics.endPhase("validate", start); //$NON-NLS-1$
+        String fingerprint = null;
+        if (skipIfUpToDate) {
+            start = System.nanoTime();
+            fingerprint = computeFingerprint(covtoolJar, settingsFile);
+            boolean upToDate = fingerprint.equals(readFingerprint(log, fingerprintFile));
+            metrics.endPhase("fingerprint", start); //$NON-NLS-1$
+            if (upToDate) {
+                log.info(Messages.get("covtool.up.to.date")); //$NON-NLS-1$
+                metrics.set("upToDate", true); //$NON-NLS-1$
+                return covtoolWorkDir;
             }
+        }
+        metrics.set("upToDate", false); //$NON-NLS-1$
+        start = System.nanoTime();
+        try {
+            BackgroundAnalysis.deleteInBackground(covtoolWorkDir);
             Files.createDirectories(covtoolWorkDir);
         } catch (IOException e) {
             log.debug(e);
             throw new MojoExecutionException(e);
         }
-        runCovtoolJar(log, covtoolJar, settingsFile, covtoolWorkDir.toFile());
-        doOtherWork(log, covtoolWorkDir);
+        metrics.endPhase("cleanup", start); //$NON-NLS-1$
+        ResultCache resultCache = null;
+        String cacheKey = null;
+        boolean cached = false;
+        if (resultCacheDirectory != null) {
+            resultCache = new ResultCache(resultCacheDirectory.toPath(), (long) resultCacheMaxSize << 20);
+            cacheKey = fingerprint != null ? fingerprint : computeFingerprint(covtoolJar, settingsFile);
+            cached = restoreResult(log, resultCache, cacheKey, covtoolWorkDir);
+        }
+        if (!cached) {
+            scannedApp = prepareApp(log, targetDir.toPath());
+            if (incrementalScan) {
+                runIncrementalScan(log, covtoolJar, settingsFile, covtoolWorkDir);
+            } else {
+                runFullScan(log, covtoolJar, settingsFile, covtoolWorkDir);
+            }
+            if (resultCache != null) {
+                storeResult(log, resultCache, cacheKey, covtoolWorkDir);
+            }
+        }
+        if (fingerprint != null) {
+            try {
+                Files.write(fingerprintFile, fingerprint.getBytes(UTF_8));
+            } catch (IOException e) {
+                log.debug(e);
+                throw new MojoExecutionException(e);
+            }
+        }
+        return covtoolWorkDir;
+    }
+
+    private boolean restoreResult(Log log, ResultCache resultCache, String cacheKey, Path covtoolWorkDir) {
+        long start = System.nanoTime();
+        try {
+            boolean hit = resultCache.restore(cacheKey, ImpactedTests.getListFile(covtoolWorkDir));
+            Properties stats = resultCache.count(hit);
+            log.info(Messages.get(hit ? "result.cache.hit" : "result.cache.miss", resultCacheDirectory, //$NON-NLS-1$ //$NON-NLS-2$
+                    ResultCache.getCount(stats, ResultCache.HITS), ResultCache.getCount(stats, ResultCache.MISSES)));
+            metrics.set("resultCache", hit ? "hit" : "miss"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            return hit;
+        } catch (IOException e) {
+            log.debug(e);
+            log.warn(Messages.get("result.cache.unavailable", resultCacheDirectory, e.getMessage())); //$NON-NLS-1$
+            return false;
+        } finally {
+            metrics.endPhase("resultCache", start); //$NON-NLS-1$
+        }
+    }
+
+    private void storeResult(Log log, ResultCache resultCache, String cacheKey, Path covtoolWorkDir) {
+        long start = System.nanoTime();
+        Properties metadata = new Properties();
+        metadata.setProperty("goal", coverageCommand); //$NON-NLS-1$
+        metadata.setProperty("created", Instant.now().toString()); //$NON-NLS-1$
+        metadata.setProperty("project", project.getId()); //$NON-NLS-1$
+        try {
+            resultCache.store(cacheKey, ImpactedTests.getListFile(covtoolWorkDir), metadata);
+        } catch (IOException e) {
+            log.debug(e);
+            log.warn(Messages.get("result.cache.unavailable", resultCacheDirectory, e.getMessage())); //$NON-NLS-1$
+        }
+        metrics.endPhase("resultCache", start); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns the application binaries to scan.
+     */
+    protected File getApp() {
+        return app;
+    }
+
+    /**
+     * Returns the folder or file scanned by the coverage tool: the expanded
+     * application when {@code expandArchives} is enabled, {@code app} otherwise.
+     */
+    private File getScannedApp() {
+        return scannedApp != null ? scannedApp : app;
+    }
+
+    private File prepareApp(Log log, Path targetDir) throws MojoExecutionException {
+        if (!expandArchives || !ArchiveExpansion.isExpandable(app)) {
+            return app;
+        }
+        long start = System.nanoTime();
+        try {
+            if (isRecordedAgainst(app.toPath())) {
+                // expanding the archive would change the locations of its classes
+                log.info(Messages.get("archive.expansion.recorded", app)); //$NON-NLS-1$
+                return app;
+            }
+        } catch (IOException e) {
+            log.debug(e);
+            log.warn(Messages.get("archive.expansion.failed", app, e.getMessage())); //$NON-NLS-1$
+            return app;
+        }
+        Path preparedDir = targetDir.resolve("selenic").resolve("expanded"); //$NON-NLS-1$ //$NON-NLS-2$
+        ArchiveExpansion expansion = new ArchiveExpansion(archiveCacheDirectory.toPath(), includes, excludes);
+        try {
+            expansion.prepare(app.toPath(), preparedDir);
+        } catch (IOException e) {
+            log.debug(e);
+            log.warn(Messages.get("archive.expansion.failed", app, e.getMessage())); //$NON-NLS-1$
+            return app;
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        metrics.endPhase("expandArchives", start); //$NON-NLS-1$
+        metrics.set("archivesExpanded", expansion.getExpandedArchives()); //$NON-NLS-1$
+        metrics.set("archivesUpdated", expansion.getUpdatedArchives()); //$NON-NLS-1$
+        metrics.set("archivesReused", expansion.getReusedArchives()); //$NON-NLS-1$
+        metrics.set("archivesExcluded", expansion.getExcludedArchives()); //$NON-NLS-1$
+        log.info(Messages.get("archive.expansion", app, expansion.getUpdatedArchives(), //$NON-NLS-1$
+                expansion.getReusedArchives(), expansion.getExcludedArchives(), millis));
+        return preparedDir.toFile();
+    }
+
+    /**
+     * Keeps the coverage tool loaded between runs, in the Maven JVM when
+     * {@code inProcess} is enabled or in a background process otherwise, and
+     * scans only the classes that changed, for goals that run repeatedly.
+     */
+    protected void useResidentCoverageTool() {
+        incrementalScan = true;
+        daemon = !inProcess;
+    }
+
+    /**
+     * Returns the metrics of this execution, to which goals add the phases and
+     * counts of their other work.
+     */
+    protected RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the time elapsed since this execution started, in milliseconds.
+     */
+    protected long getElapsedMillis() {
+        return (System.nanoTime() - executionStartNanos) / 1000000;
+    }
+
+    private void writeMetrics(Log log, Path covtoolWorkDir) throws MojoExecutionException {
+        Path metricsFile = covtoolWorkDir.resolve(RunMetrics.FILE_NAME);
+        try {
+            metrics.write(metricsFile);
+        } catch (IOException e) {
+            log.debug(e);
+            throw new MojoExecutionException(e);
+        }
+        log.debug("Metrics written to: " + metricsFile); //$NON-NLS-1$
+        if (exportMetrics) {
+            metrics.exportTo(project.getProperties());
+        }
     }
 
     protected abstract void addAdditionalArguments(List<String> command) throws MojoExecutionException;
 
+    protected abstract void addAdditionalInputs(InputFingerprint fingerprint) throws MojoExecutionException, IOException;
+
     protected abstract void doOtherWork(Log log, Path covtoolWorkDir) throws MojoExecutionException;
 
-    private static void delete(Path dir) throws IOException {
+    /**
+     * Returns whether the coverage results this goal compares with were
+     * recorded against the given application archive rather than against a
+     * folder.
+     */
+    protected abstract boolean isRecordedAgainst(Path archive) throws MojoExecutionException, IOException;
+
+    static void delete(Path dir) throws IOException {
         try (Stream<Path> stream = Files.walk(dir)) {
             stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
         }
     }
 
-    private void runCovtoolJar(Log log, Path covtoolJar, File settingsFile, File covtoolWorkDir)
+    private String computeFingerprint(Path covtoolJar, File settingsFile) throws MojoExecutionException {
+        return computeFingerprint(covtoolJar, settingsFile, true);
+    }
+
+    private String computeFingerprint(Path covtoolJar, File settingsFile, boolean includeApp)
+            throws MojoExecutionException {
+        InputFingerprint fingerprint = new InputFingerprint();
+        try {
+            fingerprint.add("covtool", covtoolJar.toFile()) //$NON-NLS-1$
+                    .add("command", coverageCommand) //$NON-NLS-1$
+                    .add("settings", settingsFile) //$NON-NLS-1$
+                    .add("properties", properties) //$NON-NLS-1$
+                    .add("showdetails", showdetails) //$NON-NLS-1$
+                    .add("includes", includes) //$NON-NLS-1$
+                    .add("excludes", excludes); //$NON-NLS-1$
+            if (includeApp) {
+                fingerprint.add("app", app) //$NON-NLS-1$
+                        .add("expandArchives", expandArchives) //$NON-NLS-1$
+                        .add("incrementalScan", incrementalScan) //$NON-NLS-1$
+                        .add("incrementalScanMaxClasses", Integer.toString(incrementalScanMaxClasses)) //$NON-NLS-1$
+                        .add("partitionedScan", partitionedScan) //$NON-NLS-1$
+                        .add("scanPartitions", Integer.toString(scanPartitions)); //$NON-NLS-1$
+            }
+            addAdditionalInputs(fingerprint);
+        } catch (IOException e) {
+            throw new MojoExecutionException(e);
+        }
+        return fingerprint.get();
+    }
+
+    private static String readFingerprint(Log log, Path fingerprintFile) {
+        if (!Files.isRegularFile(fingerprintFile)) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(fingerprintFile), UTF_8).trim();
+        } catch (IOException e) {
+            log.debug(e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the file listing the methods, in the form {@code com.foo.Bar#baz},
+     * that changed since the latest full scan of {@code incrementalScan}. It
+     * exists only after an incremental scan, not after a full scan.
+     */
+    protected static Path getChangedElementsFile(Path covtoolWorkDir) {
+        return covtoolWorkDir.resolve("changed_elements.lst"); //$NON-NLS-1$
+    }
+
+    private void runIncrementalScan(Log log, Path covtoolJar, File settingsFile, Path covtoolWorkDir)
             throws MojoExecutionException {
+        Path referenceDir = fingerprintsDirectory.toPath()
+                .resolve(computeFingerprint(covtoolJar, settingsFile, false).substring(0, 16));
+        Path referenceFingerprintsFile = referenceDir.resolve("classes.fp"); //$NON-NLS-1$
+        Path referenceListFile = referenceDir.resolve("impacted_tests.lst"); //$NON-NLS-1$
+        Path listFile = ImpactedTests.getListFile(covtoolWorkDir);
+        try {
+            long start = System.nanoTime();
+            BytecodeFingerprints fingerprints = BytecodeFingerprints.compute(getScannedApp());
+            metrics.endPhase("bytecodeFingerprints", start); //$NON-NLS-1$
+            metrics.set("classesTotal", fingerprints.getClassCount()); //$NON-NLS-1$
+            if (Files.isRegularFile(referenceFingerprintsFile) && Files.isRegularFile(referenceListFile)) {
+                BytecodeFingerprints.Diff diff = BytecodeFingerprints.load(referenceFingerprintsFile)
+                        .diff(fingerprints);
+                AntPatterns patterns = new AntPatterns(includes, excludes);
+                List<String> changedClasses = diff.changedClasses.stream().filter(patterns::matches)
+                        .collect(Collectors.toList());
+                if (!diff.removedClasses.isEmpty()) {
+                    log.info(Messages.get("incremental.scan.classes.removed", diff.removedClasses.size())); //$NON-NLS-1$
+                } else if (changedClasses.size() > incrementalScanMaxClasses) {
+                    log.info(Messages.get("incremental.scan.too.many.classes", changedClasses.size(), //$NON-NLS-1$
+                            incrementalScanMaxClasses));
+                } else {
+                    log.info(Messages.get("incremental.scan", changedClasses.size(), fingerprints.getClassCount())); //$NON-NLS-1$
+                    metrics.set("classesScanned", changedClasses.size()); //$NON-NLS-1$
+                    if (log.isDebugEnabled()) {
+                        log.debug("Changed methods:" + lineSeparator() //$NON-NLS-1$
+                                + String.join(lineSeparator(), diff.changedMethods));
+                    }
+                    Files.write(getChangedElementsFile(covtoolWorkDir), diff.changedMethods);
+                    if (!changedClasses.isEmpty()) {
+                        runCovtoolJar(log, covtoolJar, settingsFile, covtoolWorkDir.toFile(), changedClasses);
+                    }
+                    Set<String> impactedTests = new LinkedHashSet<>(Files.readAllLines(referenceListFile));
+                    if (Files.exists(listFile)) {
+                        impactedTests.addAll(Files.readAllLines(listFile));
+                    }
+                    Files.createDirectories(listFile.getParent());
+                    Files.write(listFile, impactedTests);
+                    return;
+                }
+            }
+            runFullScan(log, covtoolJar, settingsFile, covtoolWorkDir);
+            metrics.set("classesScanned", fingerprints.getClassCount()); //$NON-NLS-1$
+            Files.createDirectories(referenceDir);
+            fingerprints.store(referenceFingerprintsFile);
+            if (Files.exists(listFile)) {
+                Files.copy(listFile, referenceListFile, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.write(referenceListFile, new byte[0]);
+            }
+        } catch (IOException e) {
+            log.debug(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    private void runFullScan(Log log, Path covtoolJar, File settingsFile, Path covtoolWorkDir)
+            throws MojoExecutionException {
+        if (partitionedScan) {
+            runPartitionedScan(log, covtoolJar, settingsFile, covtoolWorkDir);
+        } else {
+            runCovtoolJar(log, covtoolJar, settingsFile, covtoolWorkDir.toFile(), includes);
+        }
+    }
+
+    private void runPartitionedScan(Log log, Path covtoolJar, File settingsFile, Path covtoolWorkDir)
+            throws MojoExecutionException {
+        long start = System.nanoTime();
+        int partitionCount = scanPartitions;
+        if (partitionCount <= 0) {
+            long budgetBytes = getForkMemoryBudgetBytes();
+            partitionCount = (int) Math.max(1, Math.min(getMaxConcurrentForks(),
+                    budgetBytes / ForkScheduler.getRequiredBytes(vmArgs)));
+        }
+        ScanPartitions partitions;
+        try {
+            partitions = ScanPartitions.compute(getScannedApp(), includes, excludes, partitionCount);
+        } catch (IOException e) {
+            log.debug(e);
+            throw new MojoExecutionException(e);
+        }
+        metrics.endPhase("partition", start); //$NON-NLS-1$
+        List<List<String>> partitionIncludes = partitions.getIncludes();
+        metrics.set("scanPartitions", partitionIncludes.size()); //$NON-NLS-1$
+        metrics.set("classesScanned", partitions.getClassCount()); //$NON-NLS-1$
+        if (partitionIncludes.size() <= 1) {
+            runCovtoolJar(log, covtoolJar, settingsFile, covtoolWorkDir.toFile(), includes);
+            return;
+        }
+        log.info(Messages.get("partitioned.scan", partitions.getClassCount(), partitionIncludes.size())); //$NON-NLS-1$
+        metrics.set("mode", "partitioned"); //$NON-NLS-1$ //$NON-NLS-2$
+        start = System.nanoTime();
+        // the last process scans the classes deleted since the baseline, which no partition includes
+        int processCount = partitionIncludes.size() + 1;
+        ExecutorService executor = Executors.newFixedThreadPool(processCount);
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        List<Path> partitionDirs = new ArrayList<>();
+        try {
+            for (int i = 0; i < processCount; i++) {
+                Path partitionDir = covtoolWorkDir.resolve("partitions").resolve(Integer.toString(i)); //$NON-NLS-1$
+                Files.createDirectories(partitionDir);
+                partitionDirs.add(partitionDir);
+                List<String> command = i < partitionIncludes.size()
+                        ? buildCommand(getJavaExe(), covtoolJar, settingsFile, partitionIncludes.get(i), excludes)
+                        : buildCommand(getJavaExe(), covtoolJar, settingsFile, includes,
+                                partitions.getRemainderExcludes());
+                int partition = i;
+                completionService.submit(() -> {
+                    runForked(log, covtoolJar, command, partitionDir.toFile());
+                    return partition;
+                });
+            }
+            for (int i = 0; i < processCount; i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    throw new MojoExecutionException(Messages.get("partition.failed", //$NON-NLS-1$
+                            processCount, e.getCause().getMessage()), e.getCause());
+                }
+            }
+            Set<String> impactedTests = new LinkedHashSet<>();
+            for (Path partitionDir : partitionDirs) {
+                Path partitionListFile = ImpactedTests.getListFile(partitionDir);
+                if (Files.exists(partitionListFile)) {
+                    impactedTests.addAll(ImpactedTests.read(partitionListFile));
+                }
+            }
+            Path listFile = ImpactedTests.getListFile(covtoolWorkDir);
+            Files.createDirectories(listFile.getParent());
+            Files.write(listFile, impactedTests);
+        } catch (IOException e) {
+            log.debug(e);
+            throw new MojoExecutionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        } finally {
+            // stops the other partitions when one failed
+            executor.shutdownNow();
+        }
+        metrics.endPhase("partitionedScan", start); //$NON-NLS-1$
+    }
+
+    private void runCovtoolJar(Log log, Path covtoolJar, File settingsFile, File covtoolWorkDir,
+            List<String> includes) throws MojoExecutionException {
+        String javaExe = getJavaExe();
+        List<String> command = buildCommand(javaExe, covtoolJar, settingsFile, includes);
+        int argumentsStart = (vmArgs == null ? 0 : vmArgs.size()) + 3;
+        if (daemon) {
+            List<String> arguments = command.subList(argumentsStart, command.size());
+            if (log.isDebugEnabled()) {
+                log.debug("daemon arguments:" + lineSeparator() + String.join(lineSeparator(), arguments)); //$NON-NLS-1$
+            }
+            long start = System.nanoTime();
+            try {
+                int exitCode = new CovtoolDaemonClient(log, covtoolJar, javaExe, vmArgs, daemonIdleTimeout)
+                        .run(arguments, covtoolWorkDir);
+                metrics.endPhase("covtool", start); //$NON-NLS-1$
+                metrics.set("mode", "daemon"); //$NON-NLS-1$ //$NON-NLS-2$
+                checkExitCode(exitCode);
+                return;
+            } catch (IOException e) {
+                log.debug(e);
+                log.warn(Messages.get("daemon.unavailable", e.getMessage())); //$NON-NLS-1$
+            }
+        } else if (inProcess) {
+            if (vmArgs != null && !vmArgs.isEmpty()) {
+                log.warn(Messages.get("in.process.vm.args.ignored", String.join(" ", vmArgs))); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            long start = System.nanoTime();
+            if (runInProcess(log, covtoolJar, command.subList(argumentsStart, command.size()), covtoolWorkDir)) {
+                metrics.endPhase("covtool", start); //$NON-NLS-1$
+                metrics.set("mode", "inProcess"); //$NON-NLS-1$ //$NON-NLS-2$
+                return;
+            }
+        }
+        metrics.set("mode", "fork"); //$NON-NLS-1$ //$NON-NLS-2$
+        runForked(log, covtoolJar, command, covtoolWorkDir);
+    }
+
+    private static String getJavaExe() {
         String osName = System.getProperty("os.name"); //$NON-NLS-1$
         boolean isWindows = osName != null && osName.startsWith("Windows"); //$NON-NLS-1$
-        String javaExe = Paths.get(System.getProperty("java.home"), "bin", //$NON-NLS-1$ //$NON-NLS-2$
+        return Paths.get(System.getProperty("java.home"), "bin", //$NON-NLS-1$ //$NON-NLS-2$
                 isWindows ? "java.exe" : "java").toFile().getAbsolutePath(); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private int getMaxConcurrentForks() {
+        return maxConcurrentForks > 0 ? maxConcurrentForks : Runtime.getRuntime().availableProcessors();
+    }
+
+    private long getForkMemoryBudgetBytes() {
+        return forkMemoryBudget > 0 ? (long) forkMemoryBudget << 20 : ForkScheduler.getPhysicalMemory() / 4 * 3;
+    }
+
+    /**
+     * Runs the coverage tool in a new JVM.
+     */
+    private void runForked(Log log, Path covtoolJar, List<String> command, File covtoolWorkDir)
+            throws MojoExecutionException {
+        ClassDataSharing cds = prepareClassDataSharing(log, covtoolJar);
+        AtomicBoolean archiveError = new AtomicBoolean();
+        Consumer<String> errorLines = null;
+        if (cds != null) {
+            command.addAll(1, cds.getVmArgs());
+            errorLines = line -> {
+                if (ClassDataSharing.isArchiveError(line)) {
+                    archiveError.set(true);
+                }
+            };
+        }
+        boolean success = false;
+        try {
+            runCommand(log, command, covtoolWorkDir, errorLines);
+            success = true;
+        } finally {
+            completeClassDataSharing(log, cds, success, archiveError.get());
+        }
+    }
+
+    private ClassDataSharing prepareClassDataSharing(Log log, Path covtoolJar) {
+        if (!classDataSharing) {
+            return null;
+        }
+        try {
+            ClassDataSharing cds = ClassDataSharing.prepare(classDataSharingDirectory.toPath(), covtoolJar,
+                    vmArgs);
+            if (cds == null) {
+                log.debug("Class Data Sharing archives require Java 13 or later"); //$NON-NLS-1$
+                return null;
+            }
+            log.debug((cds.isTraining() ? "Creating" : "Using") + " Class Data Sharing archive: " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    + cds.getArchive());
+            metrics.set("classDataSharing", cds.isTraining() ? "training" : "archive"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            return cds;
+        } catch (IOException e) {
+            log.debug(e);
+            log.warn(Messages.get("cds.unavailable", e.getMessage())); //$NON-NLS-1$
+            return null;
+        }
+    }
+
+    private static void completeClassDataSharing(Log log, ClassDataSharing cds, boolean success,
+            boolean archiveError) {
+        if (cds == null) {
+            return;
+        }
+        try {
+            if (success || cds.isTraining()) {
+                cds.complete(success);
+            } else if (archiveError) {
+                // the next run creates a new archive
+                log.debug("Deleting unusable Class Data Sharing archive: " + cds.getArchive()); //$NON-NLS-1$
+                cds.invalidate();
+            }
+        } catch (IOException e) {
+            log.debug(e);
+        }
+    }
+
+    /**
+     * Returns the command that runs the coverage tool: the Java executable, the
+     * {@code vmArgs}, {@code -jar} and the coverage tool jar, then the coverage
+     * tool arguments.
+     */
+    List<String> buildCommand(String javaExe, Path covtoolJar, File settingsFile, List<String> includes)
+            throws MojoExecutionException {
+        return buildCommand(javaExe, covtoolJar, settingsFile, includes, excludes);
+    }
+
+    private List<String> buildCommand(String javaExe, Path covtoolJar, File settingsFile, List<String> includes,
+            List<String> excludes) throws MojoExecutionException {
         List<String> command = new LinkedList<>();
         command.add(javaExe);
         if (vmArgs != null) {
@@ -167,29 +909,84 @@ public abstract class AbstractCoverageMojo extends AbstractSelenicMojo {
             addCommand("-property", "tia.test.format=junit", command); //$NON-NLS-1$ //$NON-NLS-2$
         }
         addOptionalCommand("-showdetails", showdetails, command); //$NON-NLS-1$
-        addCommand("-app", app, command); //$NON-NLS-1$
+        addCommand("-app", getScannedApp(), command); //$NON-NLS-1$
         addOptionalCommand("-include", includes, command); //$NON-NLS-1$
         addOptionalCommand("-exclude", excludes, command); //$NON-NLS-1$
         addAdditionalArguments(command);
-        runCommand(log, command, covtoolWorkDir);
+        return command;
     }
 
-    private static void runCommand(Log log, List<String> command, File covtoolWorkDir) throws MojoExecutionException {
+    private static boolean runInProcess(Log log, Path covtoolJar, List<String> arguments, File covtoolWorkDir)
+            throws MojoExecutionException {
+        if (log.isDebugEnabled()) {
+            log.debug("in-process arguments:" + lineSeparator() + String.join(lineSeparator(), arguments)); //$NON-NLS-1$
+        }
+        Path runDir = Paths.get("").toAbsolutePath(); //$NON-NLS-1$
+        int exitCode;
+        try {
+            exitCode = CovtoolRunner.get(covtoolJar).run(arguments.toArray(new String[0]), runDir,
+                    covtoolWorkDir.toPath(), log::error);
+        } catch (IllegalStateException e) {
+            log.warn(Messages.get("in.process.unavailable", e.getMessage())); //$NON-NLS-1$
+            return false;
+        } catch (IOException | ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            log.debug(e);
+            log.warn(Messages.get("in.process.unavailable", e.toString())); //$NON-NLS-1$
+            return false;
+        }
+        checkExitCode(exitCode);
+        return true;
+    }
+
+    /**
+     * Runs a command with the standard streams of this JVM. When
+     * {@code errorLines} is given, the standard error of the command is also
+     * passed to it line by line.
+     */
+    private void runCommand(Log log, List<String> command, File covtoolWorkDir, Consumer<String> errorLines)
+            throws MojoExecutionException {
         if (log.isDebugEnabled()) {
             log.debug("command:" + lineSeparator() + String.join(lineSeparator(), command)); //$NON-NLS-1$
         }
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.directory(covtoolWorkDir);
         pb.inheritIO();
+        if (errorLines != null) {
+            pb.redirectError(Redirect.PIPE);
+        }
+        long requiredBytes = ForkScheduler.getRequiredBytes(vmArgs);
+        ForkScheduler.Lease lease;
         try {
+            lease = ForkScheduler.get().acquire(requiredBytes, getMaxConcurrentForks(), getForkMemoryBudgetBytes());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e);
+        }
+        metrics.add("forkQueueWaitMillis", lease.getWaitMillis()); //$NON-NLS-1$
+        if (lease.getWaitMillis() > 0) {
+            log.info(Messages.get("fork.queued", lease.getWaitMillis(), requiredBytes >> 20)); //$NON-NLS-1$
+        }
+        try (ForkScheduler.Lease closeable = lease) {
+            long start = System.nanoTime();
             Process process = pb.start();
+            metrics.endPhase("processStart", start); //$NON-NLS-1$
+            start = System.nanoTime();
+            ProcessStats stats = ProcessStats.watch(process);
             try (OutputStream out = process.getOutputStream();
                     InputStream in = process.getInputStream();
                     InputStream err = process.getErrorStream()) {
+                Thread errorPump = errorLines == null ? null : pumpErrorLines(err, errorLines);
                 int exitCode = process.waitFor();
-                if (exitCode != 0) {
-                    throw new MojoExecutionException(Messages.get("covtool.returned.exit.code", exitCode)); //$NON-NLS-1$
+                if (errorPump != null) {
+                    errorPump.join();
                 }
+                metrics.endPhase("covtool", start); //$NON-NLS-1$
+                if (stats != null) {
+                    stats.stop();
+                    metrics.add("processCpuMillis", stats.getCpuMillis()); //$NON-NLS-1$
+                    metrics.max("processPeakRssKb", stats.getPeakRssKb()); //$NON-NLS-1$
+                }
+                checkExitCode(exitCode);
             } catch (InterruptedException e) {
                 process.destroy();
                 throw new MojoExecutionException(e);
@@ -199,6 +996,34 @@ public abstract class AbstractCoverageMojo extends AbstractSelenicMojo {
         }
     }
 
+    /**
+     * Copies the standard error of a process to the standard error of this JVM
+     * and passes its lines to {@code errorLines}, in a new thread.
+     */
+    private static Thread pumpErrorLines(InputStream err, Consumer<String> errorLines) {
+        Thread thread = new Thread(() -> {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(err, Charset.defaultCharset()));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    System.err.println(line);
+                    errorLines.accept(line);
+                }
+            } catch (IOException e) {
+                // the process ended
+            }
+        }, "covtool-stderr"); //$NON-NLS-1$
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void checkExitCode(int exitCode) throws MojoExecutionException {
+        if (exitCode != 0) {
+            throw new MojoExecutionException(Messages.get("covtool.returned.exit.code", exitCode)); //$NON-NLS-1$
+        }
+    }
+
     private static void addCommand(String name, String value, List<String> command) {
         command.add(name);
         command.add(value);
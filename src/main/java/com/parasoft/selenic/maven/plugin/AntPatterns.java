@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Matches class names in the form {@code com/foo/Bar} against the ANT path
+ * patterns of the {@code includes} and {@code excludes} parameters.
+ */
+final class AntPatterns {
+    private final List<Pattern> includes;
+
+    private final List<Pattern> excludes;
+
+    AntPatterns(List<String> includes, List<String> excludes) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+    }
+
+    /**
+     * Returns whether a class is matched by an include pattern, or there are no
+     * include patterns, and by no exclude pattern.
+     */
+    boolean matches(String className) {
+        return (includes.isEmpty() || matches(includes, className)) && !matches(excludes, className);
+    }
+
+    private static boolean matches(List<Pattern> patterns, String className) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Pattern> compile(List<String> patterns) {
+        List<Pattern> compiled = new ArrayList<>();
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                if (pattern != null && !pattern.trim().isEmpty()) {
+                    compiled.add(toRegex(pattern.trim().replace('\\', '/')));
+                }
+            }
+        }
+        return compiled;
+    }
+
+    static Pattern toRegex(String antPattern) {
+        StringBuilder regex = new StringBuilder();
+        int length = antPattern.length();
+        for (int i = 0; i < length; i++) {
+            char c = antPattern.charAt(i);
+            if (c == '*' && i + 1 < length && antPattern.charAt(i + 1) == '*') {
+                if (i + 2 < length && antPattern.charAt(i + 2) == '/') {
+                    regex.append("(?:.*/)?"); //$NON-NLS-1$
+                    i += 2;
+                } else {
+                    regex.append(".*"); //$NON-NLS-1$
+                    i++;
+                }
+            } else if (c == '*') {
+                regex.append("[^/]*"); //$NON-NLS-1$
+            } else if (c == '?') {
+                regex.append("[^/]"); //$NON-NLS-1$
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Visits the class files of the application under test, given as a folder or a
+ * .war, .jar, .zip, or .ear file, including the class files of nested
+ * archives.
+ */
+final class ApplicationClasses {
+
+    interface ClassVisitor {
+        /**
+         * @param location the path of the class file in the application, nested
+         *                 archives separated by {@code !/}
+         * @param bytes    the content of the class file
+         */
+        void visit(String location, byte[] bytes) throws IOException;
+    }
+
+    private ApplicationClasses() {
+    }
+
+    static void visit(File app, ClassVisitor visitor) throws IOException {
+        Path root = app.toPath();
+        if (!Files.isDirectory(root)) {
+            try (InputStream in = Files.newInputStream(root)) {
+                visitArchive(app.getName(), in, visitor);
+            }
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String location = root.relativize(file).toString().replace(File.separatorChar, '/');
+            if (isClass(location)) {
+                visitor.visit(location, Files.readAllBytes(file));
+            } else if (isArchive(location)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    visitArchive(location, in, visitor);
+                }
+            }
+        }
+    }
+
+    static boolean isClass(String location) {
+        return location.endsWith(".class") && !location.endsWith("module-info.class"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    static boolean isArchive(String location) {
+        String lowerCase = location.toLowerCase(Locale.ROOT);
+        return lowerCase.endsWith(".jar") || lowerCase.endsWith(".war") || lowerCase.endsWith(".ear") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                || lowerCase.endsWith(".zip"); //$NON-NLS-1$
+    }
+
+    private static void visitArchive(String archiveLocation, InputStream in, ClassVisitor visitor) throws IOException {
+        ZipInputStream zip = new ZipInputStream(new FilterInputStream(in) {
+            @Override
+            public void close() {
+                // nested archives must not close the enclosing archive
+            }
+        });
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String location = archiveLocation + "!/" + entry.getName(); //$NON-NLS-1$
+            if (isClass(entry.getName())) {
+                visitor.visit(location, readAll(zip));
+            } else if (isArchive(entry.getName())) {
+                visitArchive(location, zip, visitor);
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
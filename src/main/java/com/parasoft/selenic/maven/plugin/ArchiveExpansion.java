@@ -0,0 +1,410 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Prepares a folder with the class files of an application archive, such as a
+ * .war or .ear file, and of its nested archives for the coverage tool.
+ * <p>
+ * Every archive is expanded once into a cache folder named by the hash of its
+ * content: its class files under {@code classes} and the hashes of its nested
+ * archives in {@code nested.lst}. The prepared folder mirrors the application,
+ * each nested archive becoming a folder, and is kept between runs: only the
+ * archives whose hash changed are updated, with hard links to the cached class
+ * files, or copies when the cache is on another file system. Archives without
+ * class files matched by the {@code includes} and {@code excludes} parameters,
+ * typically third-party libraries, are left out since the coverage tool would
+ * not scan them.
+ * </p>
+ */
+final class ArchiveExpansion {
+    /**
+     * Cache entries not used for this long are removed.
+     */
+    static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final String CLASSES_DIR = "classes"; //$NON-NLS-1$
+
+    private static final String NESTED_FILE = "nested.lst"; //$NON-NLS-1$
+
+    private static final String MANIFEST_FILE = ".selenic-expansion"; //$NON-NLS-1$
+
+    private static final String[] CLASS_PREFIXES = { "WEB-INF/classes/", "BOOT-INF/classes/" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+    private final Path cacheDir;
+
+    private final AntPatterns patterns;
+
+    private final String patternsKey;
+
+    private final Map<String, Boolean> includedByHash = new HashMap<>();
+
+    private int expandedArchives;
+
+    private int updatedArchives;
+
+    private int reusedArchives;
+
+    private int excludedArchives;
+
+    ArchiveExpansion(Path cacheDir, List<String> includes, List<String> excludes) {
+        this.cacheDir = cacheDir;
+        patterns = new AntPatterns(includes, excludes);
+        patternsKey = new InputFingerprint().add("includes", includes).add("excludes", excludes).get(); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Returns whether the application is an archive that can be expanded.
+     */
+    static boolean isExpandable(File app) {
+        return app.isFile() && ApplicationClasses.isArchive(app.getName());
+    }
+
+    /**
+     * Updates the prepared folder with the content of the application archive.
+     */
+    void prepare(Path app, Path preparedDir) throws IOException {
+        Files.createDirectories(cacheDir);
+        String hash = InputFingerprint.hash(app);
+        Path manifestFile = preparedDir.resolve(MANIFEST_FILE);
+        Map<String, String> previous = readManifest(manifestFile);
+        String header = hash + '\t' + patternsKey;
+        if (header.equals(previous.get(null))) {
+            reusedArchives = previous.size() - 1;
+            return;
+        }
+        if (previous.isEmpty() && Files.exists(preparedDir)) {
+            AbstractCoverageMojo.delete(preparedDir);
+        }
+        expand(hash, app);
+        // locations, the application itself being "", to hashes and whether included
+        Map<String, String> current = new LinkedHashMap<>();
+        current.put(null, header);
+        try {
+            collect("", hash, current); //$NON-NLS-1$
+        } catch (NoSuchFileException e) {
+            // a nested archive was removed from the cache
+            AbstractCoverageMojo.delete(cacheDir.resolve(hash));
+            expand(hash, app);
+            current.keySet().removeIf(location -> location != null);
+            collect("", hash, current); //$NON-NLS-1$
+        }
+        Files.deleteIfExists(manifestFile);
+        List<Path> nestedDirs = new ArrayList<>();
+        for (String location : previous.keySet()) {
+            if (location != null && !location.isEmpty()) {
+                nestedDirs.add(preparedDir.resolve(location));
+            }
+        }
+        for (String location : current.keySet()) {
+            if (location != null && !location.isEmpty()) {
+                nestedDirs.add(preparedDir.resolve(location));
+            }
+        }
+        for (Entry<String, String> entry : previous.entrySet()) {
+            String location = entry.getKey();
+            if (location != null && !entry.getValue().equals(current.get(location))) {
+                deleteOwnFiles(preparedDir.resolve(location), nestedDirs);
+            }
+        }
+        for (Entry<String, String> entry : current.entrySet()) {
+            String location = entry.getKey();
+            if (location == null) {
+                continue;
+            }
+            String[] value = entry.getValue().split("\t"); //$NON-NLS-1$
+            if (!Boolean.parseBoolean(value[1])) {
+                excludedArchives++;
+            } else if (entry.getValue().equals(previous.get(location))) {
+                reusedArchives++;
+            } else {
+                link(cacheDir.resolve(value[0]).resolve(CLASSES_DIR), preparedDir.resolve(location));
+                updatedArchives++;
+            }
+        }
+        List<String> lines = new ArrayList<>(current.size());
+        for (Entry<String, String> entry : current.entrySet()) {
+            lines.add(entry.getKey() == null ? entry.getValue() : entry.getKey() + '\t' + entry.getValue());
+        }
+        Files.createDirectories(preparedDir);
+        Files.write(manifestFile, lines, UTF_8);
+        evict();
+    }
+
+    /**
+     * Returns the number of archives expanded into the cache.
+     */
+    int getExpandedArchives() {
+        return expandedArchives;
+    }
+
+    /**
+     * Returns the number of archives updated in the prepared folder.
+     */
+    int getUpdatedArchives() {
+        return updatedArchives;
+    }
+
+    /**
+     * Returns the number of archives left unchanged in the prepared folder.
+     */
+    int getReusedArchives() {
+        return reusedArchives;
+    }
+
+    /**
+     * Returns the number of archives left out for having no included classes.
+     */
+    int getExcludedArchives() {
+        return excludedArchives;
+    }
+
+    /**
+     * Expands an archive into the cache unless it is already there.
+     */
+    private void expand(String hash, Path file) throws IOException {
+        Path archiveDir = cacheDir.resolve(hash);
+        if (Files.isDirectory(archiveDir)) {
+            // marks the entry as recently used
+            Files.setLastModifiedTime(archiveDir, FileTime.fromMillis(System.currentTimeMillis()));
+            return;
+        }
+        Path tempDir = Files.createTempDirectory(cacheDir, hash);
+        try {
+            Path classesDir = Files.createDirectories(tempDir.resolve(CLASSES_DIR));
+            List<String> nested = new ArrayList<>();
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    if (ApplicationClasses.isClass(name)) {
+                        Path target = classesDir.resolve(name).normalize();
+                        if (!target.startsWith(classesDir)) {
+                            continue;
+                        }
+                        Files.createDirectories(target.getParent());
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    } else if (ApplicationClasses.isArchive(name)) {
+                        nested.add(name + '\t' + expandNested(zip, entry));
+                    }
+                }
+            }
+            Files.write(tempDir.resolve(NESTED_FILE), nested, UTF_8);
+            try {
+                Files.move(tempDir, archiveDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // expanded by another build meanwhile
+            } catch (IOException e) {
+                if (!Files.isDirectory(archiveDir)) {
+                    throw e;
+                }
+            }
+            expandedArchives++;
+        } finally {
+            if (Files.exists(tempDir)) {
+                AbstractCoverageMojo.delete(tempDir);
+            }
+        }
+    }
+
+    private String expandNested(ZipFile zip, ZipEntry entry) throws IOException {
+        Path tempFile = Files.createTempFile(cacheDir, "nested", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            MessageDigest digest = InputFingerprint.newDigest();
+            try (InputStream in = new DigestInputStream(zip.getInputStream(entry), digest);
+                    OutputStream out = Files.newOutputStream(tempFile)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            String hash = InputFingerprint.toHex(digest.digest());
+            expand(hash, tempFile);
+            return hash;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void collect(String location, String hash, Map<String, String> locations) throws IOException {
+        Path archiveDir = cacheDir.resolve(hash);
+        Files.setLastModifiedTime(archiveDir, FileTime.fromMillis(System.currentTimeMillis()));
+        locations.put(location, hash + '\t' + isIncluded(hash));
+        for (String line : Files.readAllLines(archiveDir.resolve(NESTED_FILE), UTF_8)) {
+            int tab = line.lastIndexOf('\t');
+            if (tab > 0) {
+                String name = line.substring(0, tab);
+                collect(location.isEmpty() ? name : location + '/' + name, line.substring(tab + 1), locations);
+            }
+        }
+    }
+
+    /**
+     * Returns whether an archive has class files of its own matched by the
+     * include and exclude patterns.
+     */
+    private boolean isIncluded(String hash) throws IOException {
+        Boolean included = includedByHash.get(hash);
+        if (included == null) {
+            Path classesDir = cacheDir.resolve(hash).resolve(CLASSES_DIR);
+            try (Stream<Path> files = Files.walk(classesDir)) {
+                included = files.filter(Files::isRegularFile).map(file -> getClassName(classesDir, file))
+                        .anyMatch(patterns::matches);
+            }
+            includedByHash.put(hash, included);
+        }
+        return included;
+    }
+
+    private static String getClassName(Path classesDir, Path classFile) {
+        String path = classesDir.relativize(classFile).toString().replace(File.separatorChar, '/');
+        for (String prefix : CLASS_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                path = path.substring(prefix.length());
+                break;
+            }
+        }
+        return path.substring(0, path.length() - ".class".length()); //$NON-NLS-1$
+    }
+
+    private static void link(Path classesDir, Path targetDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(classesDir)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Path target = targetDir.resolve(classesDir.relativize(file).toString());
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, file);
+            } catch (IOException | UnsupportedOperationException e) {
+                try (FileChannel in = FileChannel.open(file);
+                        FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW,
+                                StandardOpenOption.WRITE)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the files of an archive in the prepared folder, without the files
+     * of its nested archives.
+     */
+    private static void deleteOwnFiles(Path dir, List<Path> nestedDirs) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            boolean nested = false;
+            for (Path nestedDir : nestedDirs) {
+                if (!nestedDir.equals(dir) && nestedDir.startsWith(dir) && file.startsWith(nestedDir)) {
+                    nested = true;
+                    break;
+                }
+            }
+            if (!nested) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Reads the manifest of the prepared folder: the hash of the application
+     * and of the patterns under the {@code null} key, then the locations of the
+     * archives.
+     */
+    private static Map<String, String> readManifest(Path manifestFile) throws IOException {
+        Map<String, String> manifest = new LinkedHashMap<>();
+        if (!Files.isRegularFile(manifestFile)) {
+            return manifest;
+        }
+        List<String> lines = Files.readAllLines(manifestFile, UTF_8);
+        if (!lines.isEmpty()) {
+            manifest.put(null, lines.get(0));
+            for (String line : lines.subList(1, lines.size())) {
+                int tab = line.indexOf('\t');
+                if (tab >= 0) {
+                    manifest.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    private void evict() throws IOException {
+        long oldest = System.currentTimeMillis() - MAX_UNUSED_MILLIS;
+        List<Path> stale;
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            stale = stream.filter(Files::isDirectory).filter(dir -> {
+                try {
+                    return Files.getLastModifiedTime(dir).toMillis() < oldest;
+                } catch (IOException e) {
+                    return false;
+                }
+            }).collect(Collectors.toList());
+        }
+        for (Path dir : stale) {
+            AbstractCoverageMojo.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * An analysis started by the {@code impacted-tests-start} goal in a background
+ * thread, kept in the context of the project until the
+ * {@code impacted-tests-await} goal waits for it. Also deletes old working
+ * folders in the background.
+ */
+final class BackgroundAnalysis {
+    private static final String CONTEXT_KEY = BackgroundAnalysis.class.getName();
+
+    private static final String DELETED_SUFFIX = ".deleted-"; //$NON-NLS-1$
+
+    private final FutureTask<Path> task;
+
+    private final RunMetrics metrics;
+
+    private BackgroundAnalysis(Callable<Path> analysis, RunMetrics metrics) {
+        task = new FutureTask<>(analysis);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts an analysis that returns the coverage tool working folder in a
+     * daemon thread and keeps it in the context of a project.
+     *
+     * @param metrics the metrics recorded by the analysis
+     */
+    static BackgroundAnalysis start(MavenProject project, RunMetrics metrics, Callable<Path> analysis) {
+        BackgroundAnalysis backgroundAnalysis = new BackgroundAnalysis(analysis, metrics);
+        Thread thread = new Thread(backgroundAnalysis.task, "selenic-analysis-" + project.getArtifactId()); //$NON-NLS-1$
+        thread.setDaemon(true);
+        project.setContextValue(CONTEXT_KEY, backgroundAnalysis);
+        thread.start();
+        return backgroundAnalysis;
+    }
+
+    /**
+     * Removes the analysis started for a project from its context.
+     *
+     * @return the analysis, or {@code null} if none was started
+     */
+    static BackgroundAnalysis remove(MavenProject project) {
+        Object backgroundAnalysis = project.getContextValue(CONTEXT_KEY);
+        project.setContextValue(CONTEXT_KEY, null);
+        return backgroundAnalysis instanceof BackgroundAnalysis ? (BackgroundAnalysis) backgroundAnalysis : null;
+    }
+
+    /**
+     * Waits for the analysis to end.
+     *
+     * @return the coverage tool working folder
+     */
+    Path await() throws MojoExecutionException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MojoExecutionException) {
+                throw (MojoExecutionException) cause;
+            }
+            throw new MojoExecutionException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Moves a folder aside and deletes it in a daemon thread, with the folders
+     * moved aside by earlier runs that did not complete their deletion, for
+     * example because Maven exited first. Deletes the folder at once if it
+     * cannot be moved.
+     */
+    static void deleteInBackground(Path dir) throws IOException {
+        Path parent = dir.toAbsolutePath().getParent();
+        String prefix = dir.getFileName() + DELETED_SUFFIX;
+        if (Files.exists(dir)) {
+            try {
+                Files.move(dir, parent.resolve(prefix + System.nanoTime()), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // for example open files on Windows
+                AbstractCoverageMojo.delete(dir);
+            }
+        }
+        List<Path> deletedDirs = new ArrayList<>();
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(parent, prefix + '*')) {
+            for (Path sibling : siblings) {
+                deletedDirs.add(sibling);
+            }
+        }
+        if (deletedDirs.isEmpty()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            for (Path deletedDir : deletedDirs) {
+                try {
+                    AbstractCoverageMojo.delete(deletedDir);
+                } catch (IOException | UncheckedIOException e) {
+                    // deleted by the next run
+                }
+            }
+        }, "selenic-cleanup"); //$NON-NLS-1$
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Read-only view of a baseline index compiled by
+ * {@link BaselineIndexCompiler}. The index file is memory-mapped, so opening
+ * it does not read it and queries only touch the pages they need.
+ * <p>
+ * Layout, all numbers big-endian:
+ * </p>
+ *
+ * <pre>
+ * magic, version                       int, int
+ * baseline hash                        64 ASCII hex digits
+ * test count, element count            int, int
+ * test name offsets                    int[test count + 1], into test names
+ * test names                           UTF-8
+ * element name offsets                 int[element count + 1], into element names
+ * element names                        UTF-8, sorted by unsigned byte order
+ * element postings offsets             int[element count + 1], into element postings
+ * element postings                     int[], sorted test ids covering each element
+ * test postings offsets                int[test count + 1], into test postings
+ * test postings                        int[], sorted element ids covered by each test
+ * </pre>
+ *
+ * Code elements are named {@code <class>#<method>}.
+ */
+final class BaselineIndex implements Closeable {
+    static final int MAGIC = 0x534C4958; // SLIX
+
+    static final int VERSION = 1;
+
+    static final int HASH_LENGTH = 64;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final String baselineHash;
+
+    private final int testCount;
+
+    private final int elementCount;
+
+    private final int testNameOffsets;
+
+    private final int testNames;
+
+    private final int elementNameOffsets;
+
+    private final int elementNames;
+
+    private final int elementPostingOffsets;
+
+    private final int elementPostings;
+
+    private final int testPostingOffsets;
+
+    private final int testPostings;
+
+    private BaselineIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Baseline index larger than 2 GB is not supported"); //$NON-NLS-1$
+        }
+        buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a baseline index or unsupported version"); //$NON-NLS-1$
+        }
+        byte[] hash = new byte[HASH_LENGTH];
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            hash[i] = buffer.get(8 + i);
+        }
+        baselineHash = new String(hash, US_ASCII);
+        int position = 8 + HASH_LENGTH;
+        testCount = buffer.getInt(position);
+        elementCount = buffer.getInt(position + 4);
+        testNameOffsets = position + 8;
+        testNames = testNameOffsets + (testCount + 1) * 4;
+        elementNameOffsets = testNames + buffer.getInt(testNameOffsets + testCount * 4);
+        elementNames = elementNameOffsets + (elementCount + 1) * 4;
+        elementPostingOffsets = elementNames + buffer.getInt(elementNameOffsets + elementCount * 4);
+        elementPostings = elementPostingOffsets + (elementCount + 1) * 4;
+        testPostingOffsets = elementPostings + buffer.getInt(elementPostingOffsets + elementCount * 4) * 4;
+        testPostings = testPostingOffsets + (testCount + 1) * 4;
+    }
+
+    static BaselineIndex open(Path indexFile) throws IOException {
+        FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+        try {
+            return new BaselineIndex(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    String getBaselineHash() {
+        return baselineHash;
+    }
+
+    int getTestCount() {
+        return testCount;
+    }
+
+    int getElementCount() {
+        return elementCount;
+    }
+
+    String getTestName(int testId) {
+        return getString(testNameOffsets, testNames, testId);
+    }
+
+    String getElementName(int elementId) {
+        return getString(elementNameOffsets, elementNames, elementId);
+    }
+
+    /**
+     * Returns the names of the tests that cover a code element. The query is
+     * either a method, {@code <class>#<method>}, or a class, in which case the
+     * tests covering any of its methods are returned.
+     */
+    Set<String> getTests(String query) {
+        Set<String> tests = new TreeSet<>();
+        for (int elementId : findElements(query)) {
+            int start = buffer.getInt(elementPostingOffsets + elementId * 4);
+            int end = buffer.getInt(elementPostingOffsets + (elementId + 1) * 4);
+            for (int i = start; i < end; i++) {
+                tests.add(getTestName(buffer.getInt(elementPostings + i * 4)));
+            }
+        }
+        return tests;
+    }
+
+    /**
+     * Returns, by test name, how many of the given code elements each test
+     * covers. The code elements are named like in {@link #getTests(String)}.
+     * Tests that cover none of them are not included.
+     */
+    Map<String, Integer> countCoveredElements(Collection<String> queries) {
+        int[] counts = new int[testCount];
+        for (String query : queries) {
+            for (int elementId : findElements(query)) {
+                int start = buffer.getInt(elementPostingOffsets + elementId * 4);
+                int end = buffer.getInt(elementPostingOffsets + (elementId + 1) * 4);
+                for (int i = start; i < end; i++) {
+                    counts[buffer.getInt(elementPostings + i * 4)]++;
+                }
+            }
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (int testId = 0; testId < testCount; testId++) {
+            if (counts[testId] > 0) {
+                result.put(getTestName(testId), counts[testId]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the code elements covered by a test.
+     */
+    List<String> getCoveredElements(int testId) {
+        int start = buffer.getInt(testPostingOffsets + testId * 4);
+        int end = buffer.getInt(testPostingOffsets + (testId + 1) * 4);
+        List<String> elements = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            elements.add(getElementName(buffer.getInt(testPostings + i * 4)));
+        }
+        return elements;
+    }
+
+    private List<Integer> findElements(String query) {
+        List<Integer> elementIds = new ArrayList<>();
+        byte[] key = query.getBytes(UTF_8);
+        if (query.indexOf('#') >= 0) {
+            int elementId = lowerBound(key);
+            if (elementId < elementCount && compareElement(elementId, key, false) == 0) {
+                elementIds.add(elementId);
+            }
+        } else {
+            byte[] prefix = (query + '#').getBytes(UTF_8);
+            for (int elementId = lowerBound(prefix); elementId < elementCount
+                    && compareElement(elementId, prefix, true) == 0; elementId++) {
+                elementIds.add(elementId);
+            }
+        }
+        return elementIds;
+    }
+
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = elementCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareElement(middle, key, false) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the name of an element with a key by unsigned bytes, or only its
+     * first bytes when {@code prefix} is set.
+     */
+    private int compareElement(int elementId, byte[] key, boolean prefix) {
+        int start = elementNames + buffer.getInt(elementNameOffsets + elementId * 4);
+        int length = elementNames + buffer.getInt(elementNameOffsets + (elementId + 1) * 4) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int result = Integer.compare(buffer.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        if (prefix && length >= key.length) {
+            return 0;
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private String getString(int offsets, int data, int index) {
+        int start = buffer.getInt(offsets + index * 4);
+        int end = buffer.getInt(offsets + (index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(data + start + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
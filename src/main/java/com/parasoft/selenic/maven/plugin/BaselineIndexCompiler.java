@@ -0,0 +1,291 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Compiles a coverage map into a {@link BaselineIndex} in a single streaming
+ * pass. Memory use depends on the number of tests, code elements and coverage
+ * records, not on the size of the XML.
+ * <p>
+ * Coverage maps are written by {@link CoverageMerger}, see
+ * {@code src/test/resources/coverage-map.xml} for an example. The following
+ * parts are read, everything else is skipped:
+ * </p>
+ *
+ * <pre>{@literal <Test id="..." name="..."/>}
+ *{@literal <Class name="com.foo.Bar">}
+ *  {@literal <Method name="baz">}
+ *    {@literal <... testId="..."/>} or {@literal <... testIds="... ..."/>}
+ *  {@literal </Method>}
+ *{@literal </Class>}</pre>
+ */
+final class BaselineIndexCompiler {
+    static final String TEST = "Test"; //$NON-NLS-1$
+
+    static final String CLASS = "Class"; //$NON-NLS-1$
+
+    static final String METHOD = "Method"; //$NON-NLS-1$
+
+    static final String ID = "id"; //$NON-NLS-1$
+
+    static final String NAME = "name"; //$NON-NLS-1$
+
+    static final String TEST_ID = "testId"; //$NON-NLS-1$
+
+    static final String TEST_IDS = "testIds"; //$NON-NLS-1$
+
+    private final Map<String, Integer> testIds = new HashMap<>();
+
+    private final List<String> testNames = new ArrayList<>();
+
+    private final Map<String, Integer> elementIds = new HashMap<>();
+
+    private final List<byte[]> elementNames = new ArrayList<>();
+
+    private final List<IntList> elementPostings = new ArrayList<>();
+
+    private BaselineIndexCompiler() {
+    }
+
+    /**
+     * Compiles the coverage map into the index file, replacing it atomically.
+     *
+     * @throws IOException if the coverage map has no covered code elements, for
+     *                     example because it is a baseline of the coverage tool
+     */
+    static void compile(Path baseline, Path indexFile) throws IOException {
+        String baselineHash = InputFingerprint.hash(baseline);
+        BaselineIndexCompiler compiler = new BaselineIndexCompiler();
+        try (InputStream in = CompressedBaseline.open(baseline)) {
+            compiler.read(in);
+        } catch (XMLStreamException e) {
+            throw new IOException(Messages.get("baseline.invalid", baseline, e.getMessage()), e); //$NON-NLS-1$
+        }
+        if (compiler.elementNames.isEmpty()) {
+            throw new IOException(Messages.get("baseline.no.coverage", baseline)); //$NON-NLS-1$
+        }
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+        try {
+            compiler.write(tempFile, baselineHash);
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void read(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try {
+            String className = null;
+            IntList postings = null;
+            int methodDepth = -1;
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String localName = reader.getLocalName();
+                    if (TEST.equals(localName) && reader.getAttributeValue(null, NAME) != null) {
+                        String name = reader.getAttributeValue(null, NAME);
+                        String id = reader.getAttributeValue(null, ID);
+                        testNames.set(getTestId(id == null ? name : id), name);
+                    } else if (CLASS.equals(localName)) {
+                        className = reader.getAttributeValue(null, NAME);
+                    } else if (METHOD.equals(localName) && className != null) {
+                        postings = getPostings(className + '#' + reader.getAttributeValue(null, NAME));
+                        methodDepth = depth;
+                    } else if (postings != null) {
+                        addTestReferences(reader.getAttributeValue(null, TEST_ID), postings);
+                        addTestReferences(reader.getAttributeValue(null, TEST_IDS), postings);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == methodDepth) {
+                        postings = null;
+                        methodDepth = -1;
+                    } else if (CLASS.equals(reader.getLocalName())) {
+                        className = null;
+                    }
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void addTestReferences(String references, IntList postings) {
+        if (references != null) {
+            for (String reference : references.split("[\\s,]+")) { //$NON-NLS-1$
+                if (!reference.isEmpty()) {
+                    postings.add(getTestId(reference));
+                }
+            }
+        }
+    }
+
+    private int getTestId(String xmlId) {
+        return testIds.computeIfAbsent(xmlId, k -> {
+            testNames.add(k);
+            return testNames.size() - 1;
+        });
+    }
+
+    private IntList getPostings(String elementName) {
+        Integer elementId = elementIds.get(elementName);
+        if (elementId == null) {
+            elementId = elementNames.size();
+            elementIds.put(elementName, elementId);
+            elementNames.add(elementName.getBytes(UTF_8));
+            elementPostings.add(new IntList());
+        }
+        return elementPostings.get(elementId);
+    }
+
+    private void write(Path indexFile, String baselineHash) throws IOException {
+        int testCount = testNames.size();
+        int elementCount = elementNames.size();
+        Integer[] order = new Integer[elementCount];
+        for (int i = 0; i < elementCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareUnsigned(elementNames.get(a), elementNames.get(b)));
+        IntList[] testPostings = new IntList[testCount];
+        for (int i = 0; i < testCount; i++) {
+            testPostings[i] = new IntList();
+        }
+        int[][] sortedElementPostings = new int[elementCount][];
+        for (int elementId = 0; elementId < elementCount; elementId++) {
+            int[] tests = elementPostings.get(order[elementId]).toSortedDistinctArray();
+            sortedElementPostings[elementId] = tests;
+            for (int test : tests) {
+                testPostings[test].add(elementId);
+            }
+        }
+        byte[][] testNameBytes = new byte[testCount][];
+        for (int i = 0; i < testCount; i++) {
+            testNameBytes[i] = testNames.get(i).getBytes(UTF_8);
+        }
+        byte[][] elementNameBytes = new byte[elementCount][];
+        for (int i = 0; i < elementCount; i++) {
+            elementNameBytes[i] = elementNames.get(order[i]);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(indexFile), 64 * 1024))) {
+            out.writeInt(BaselineIndex.MAGIC);
+            out.writeInt(BaselineIndex.VERSION);
+            out.write(baselineHash.getBytes(US_ASCII));
+            out.writeInt(testCount);
+            out.writeInt(elementCount);
+            writeStrings(testNameBytes, out);
+            writeStrings(elementNameBytes, out);
+            writePostings(sortedElementPostings, out);
+            int[][] sortedTestPostings = new int[testCount][];
+            for (int i = 0; i < testCount; i++) {
+                sortedTestPostings[i] = testPostings[i].toSortedDistinctArray();
+            }
+            writePostings(sortedTestPostings, out);
+        }
+    }
+
+    private static void writeStrings(byte[][] strings, DataOutputStream out) throws IOException {
+        int offset = 0;
+        for (byte[] string : strings) {
+            out.writeInt(offset);
+            offset += string.length;
+        }
+        out.writeInt(offset);
+        for (byte[] string : strings) {
+            out.write(string);
+        }
+    }
+
+    private static void writePostings(int[][] postings, DataOutputStream out) throws IOException {
+        int offset = 0;
+        for (int[] posting : postings) {
+            out.writeInt(offset);
+            offset += posting.length;
+        }
+        out.writeInt(offset);
+        for (int[] posting : postings) {
+            for (int value : posting) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int result = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toSortedDistinctArray() {
+            int[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Compiles a coverage map, which lists the tests covering each method, into a
+ * compact index that can be queried with the {@code baseline-query} goal and
+ * used to prioritize tests. Coverage maps are written by the
+ * {@code coverage-merge} goal from coverage reports with {@code Class},
+ * {@code Method} and {@code Test} elements; the baseline passed to the coverage
+ * tool is not one.
+ */
+@Mojo(name = "baseline-index", threadSafe = true)
+public class BaselineIndexMojo extends AbstractMojo {
+
+    /**
+     * Specifies the coverage map, optionally compressed with gzip.
+     */
+    @Parameter(property = "selenic.coverage.coverageMap", defaultValue = "${project.build.directory}/selenic/coverage-map.xml")
+    private File coverageMap;
+
+    /**
+     * Specifies the index file compiled from the coverage map.
+     */
+    @Parameter(property = "selenic.coverage.baselineIndex", defaultValue = "${project.build.directory}/selenic/baseline.idx")
+    private File baselineIndex;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        Log log = getLog();
+        if (!coverageMap.exists()) {
+            throw new MojoExecutionException(Messages.get("coverage.map.missing", coverageMap)); //$NON-NLS-1$
+        }
+        try {
+            CompressedBaseline.check(coverageMap.toPath());
+            if (baselineIndex.exists()) {
+                String baselineHash = InputFingerprint.hash(coverageMap.toPath());
+                try (BaselineIndex index = BaselineIndex.open(baselineIndex.toPath())) {
+                    if (baselineHash.equals(index.getBaselineHash())) {
+                        log.info(Messages.get("baseline.index.up.to.date", baselineIndex)); //$NON-NLS-1$
+                        return;
+                    }
+                } catch (IOException e) {
+                    log.debug(e);
+                }
+            }
+            long start = System.currentTimeMillis();
+            BaselineIndexCompiler.compile(coverageMap.toPath(), baselineIndex.toPath());
+            try (BaselineIndex index = BaselineIndex.open(baselineIndex.toPath())) {
+                log.info(Messages.get("baseline.index.compiled", baselineIndex, index.getTestCount(), //$NON-NLS-1$
+                        index.getElementCount(), System.currentTimeMillis() - start));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+}
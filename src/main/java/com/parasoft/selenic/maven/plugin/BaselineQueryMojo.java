@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Lists the tests of a baseline index, compiled with the {@code baseline-index}
+ * goal, that cover a class or a method.
+ */
+@Mojo(name = "baseline-query", threadSafe = true)
+public class BaselineQueryMojo extends AbstractMojo {
+
+    /**
+     * Specifies the index file compiled from a coverage map.
+     */
+    @Parameter(property = "selenic.coverage.baselineIndex", defaultValue = "${project.build.directory}/selenic/baseline.idx")
+    private File baselineIndex;
+
+    /**
+     * Specifies the class, for example {@code com.foo.Bar}, or the method, for
+     * example {@code com.foo.Bar#baz}, to find the covering tests of.
+     */
+    @Parameter(property = "selenic.query", required = true)
+    private String query;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        Log log = getLog();
+        if (!baselineIndex.exists()) {
+            throw new MojoExecutionException(Messages.get("baseline.index.missing", baselineIndex)); //$NON-NLS-1$
+        }
+        long start = System.nanoTime();
+        Set<String> tests;
+        try (BaselineIndex index = BaselineIndex.open(baselineIndex.toPath())) {
+            tests = index.getTests(query.trim());
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        log.info(Messages.get("baseline.query.result", query, tests.size(), (System.nanoTime() - start) / 1000000)); //$NON-NLS-1$
+        for (String test : tests) {
+            log.info("  " + test); //$NON-NLS-1$
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Per-class and per-method fingerprints of the bytecode of an application.
+ * Debug information such as line numbers, local variable names and source file
+ * names is ignored, so recompiling unchanged code or changing only comments
+ * gives the same fingerprints.
+ */
+final class BytecodeFingerprints {
+    private static final String CLASS_PREFIX = "C "; //$NON-NLS-1$
+
+    private static final String METHOD_PREFIX = "M "; //$NON-NLS-1$
+
+    /** Class names in the form {@code com/foo/Bar} to fingerprints. */
+    private final Map<String, String> classes = new TreeMap<>();
+
+    /** Method names in the form {@code com/foo/Bar#baz(I)V} to fingerprints. */
+    private final Map<String, String> methods = new TreeMap<>();
+
+    private BytecodeFingerprints() {
+    }
+
+    static BytecodeFingerprints compute(File app) throws IOException {
+        BytecodeFingerprints fingerprints = new BytecodeFingerprints();
+        ApplicationClasses.visit(app, (location, bytes) -> fingerprints.add(bytes));
+        return fingerprints;
+    }
+
+    static BytecodeFingerprints load(Path file) throws IOException {
+        BytecodeFingerprints fingerprints = new BytecodeFingerprints();
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf(' ');
+                if (separator <= 2) {
+                    continue;
+                }
+                String name = line.substring(2, separator);
+                String fingerprint = line.substring(separator + 1);
+                if (line.startsWith(CLASS_PREFIX)) {
+                    fingerprints.classes.put(name, fingerprint);
+                } else if (line.startsWith(METHOD_PREFIX)) {
+                    fingerprints.methods.put(name, fingerprint);
+                }
+            }
+        }
+        return fingerprints;
+    }
+
+    void store(Path file) throws IOException {
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, UTF_8)) {
+                for (Entry<String, String> entry : classes.entrySet()) {
+                    writer.write(CLASS_PREFIX + entry.getKey() + ' ' + entry.getValue());
+                    writer.newLine();
+                }
+                for (Entry<String, String> entry : methods.entrySet()) {
+                    writer.write(METHOD_PREFIX + entry.getKey() + ' ' + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    int getClassCount() {
+        return classes.size();
+    }
+
+    Set<String> getClassNames() {
+        return Collections.unmodifiableSet(classes.keySet());
+    }
+
+    /**
+     * Returns the differences from these fingerprints to the given ones.
+     */
+    Diff diff(BytecodeFingerprints current) {
+        Diff diff = new Diff();
+        for (Entry<String, String> entry : current.classes.entrySet()) {
+            if (!entry.getValue().equals(classes.get(entry.getKey()))) {
+                diff.changedClasses.add(entry.getKey());
+            }
+        }
+        for (String className : classes.keySet()) {
+            if (!current.classes.containsKey(className)) {
+                diff.removedClasses.add(className);
+            }
+        }
+        Set<String> methodNames = new TreeSet<>(methods.keySet());
+        methodNames.addAll(current.methods.keySet());
+        for (String methodName : methodNames) {
+            String fingerprint = methods.get(methodName);
+            if (fingerprint == null || !fingerprint.equals(current.methods.get(methodName))) {
+                int nameEnd = methodName.indexOf('(');
+                diff.changedMethods.add(methodName.substring(0, nameEnd < 0 ? methodName.length() : nameEnd)
+                        .replace('/', '.'));
+            }
+        }
+        return diff;
+    }
+
+    private void add(byte[] bytes) {
+        FingerprintClassVisitor visitor = new FingerprintClassVisitor();
+        new ClassReader(bytes).accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        String className = visitor.className;
+        MessageDigest classDigest = InputFingerprint.newDigest();
+        update(classDigest, visitor.header.toString());
+        for (Entry<String, String> method : visitor.methods.entrySet()) {
+            String methodName = className + '#' + method.getKey();
+            String previous = methods.get(methodName);
+            String fingerprint = previous == null ? method.getValue() : combine(previous, method.getValue());
+            methods.put(methodName, fingerprint);
+            update(classDigest, method.getKey());
+            update(classDigest, method.getValue());
+        }
+        String fingerprint = toFingerprint(classDigest);
+        String previous = classes.get(className);
+        // the same class may be packaged more than once, e.g. in several nested archives
+        classes.put(className, previous == null ? fingerprint : combine(previous, fingerprint));
+    }
+
+    private static String combine(String first, String second) {
+        MessageDigest digest = InputFingerprint.newDigest();
+        update(digest, first);
+        update(digest, second);
+        return toFingerprint(digest);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String toFingerprint(MessageDigest digest) {
+        return InputFingerprint.toHex(Arrays.copyOf(digest.digest(), 16));
+    }
+
+    /**
+     * Changes between two sets of fingerprints.
+     */
+    static final class Diff {
+        /** Added or modified classes in the form {@code com/foo/Bar}. */
+        final Set<String> changedClasses = new TreeSet<>();
+
+        /** Removed classes in the form {@code com/foo/Bar}. */
+        final Set<String> removedClasses = new TreeSet<>();
+
+        /** Added, modified or removed methods in the form {@code com.foo.Bar#baz}. */
+        final Set<String> changedMethods = new TreeSet<>();
+
+        boolean isEmpty() {
+            return changedClasses.isEmpty() && removedClasses.isEmpty();
+        }
+    }
+
+    private static final class FingerprintClassVisitor extends ClassVisitor {
+        private final StringBuilder header = new StringBuilder();
+
+        private final Map<String, String> methods = new TreeMap<>();
+
+        private String className;
+
+        private FingerprintClassVisitor() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                String[] interfaces) {
+            className = name;
+            header.append(access).append(' ').append(name).append(' ').append(superName).append(' ')
+                    .append(Arrays.toString(interfaces)).append('\n');
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            header.append("@").append(descriptor).append('\n'); //$NON-NLS-1$
+            return null;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            header.append("F ").append(access).append(' ').append(name).append(' ').append(descriptor) //$NON-NLS-1$
+                    .append(' ').append(value).append('\n');
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                String[] exceptions) {
+            String methodName = name + descriptor;
+            return new FingerprintMethodVisitor(access, fingerprint -> methods.put(methodName, fingerprint));
+        }
+    }
+
+    private static final class FingerprintMethodVisitor extends MethodVisitor {
+        private final MessageDigest digest = InputFingerprint.newDigest();
+
+        private final Map<Label, Integer> labels = new HashMap<>();
+
+        private final Consumer<String> result;
+
+        private FingerprintMethodVisitor(int access, Consumer<String> result) {
+            super(Opcodes.ASM9);
+            this.result = result;
+            update(digest, Integer.toString(access));
+        }
+
+        private void add(Object... values) {
+            StringBuilder builder = new StringBuilder();
+            for (Object value : values) {
+                if (value instanceof Label) {
+                    builder.append('L').append(labels.computeIfAbsent((Label) value, k -> labels.size()));
+                } else if (value instanceof Object[]) {
+                    builder.append(Arrays.deepToString((Object[]) value));
+                } else {
+                    builder.append(value);
+                }
+                builder.append(' ');
+            }
+            update(digest, builder.toString());
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            add("@", descriptor); //$NON-NLS-1$
+            return null;
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            add(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            add(opcode, operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            add(opcode, varIndex);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            add(opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            add(opcode, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            add(opcode, owner, name, descriptor, isInterface);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                Object... bootstrapMethodArguments) {
+            add("indy", name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments); //$NON-NLS-1$
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            add(opcode, label);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            add(label);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            add("ldc", value.getClass().getName(), value); //$NON-NLS-1$
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            add("iinc", varIndex, increment); //$NON-NLS-1$
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... switchLabels) {
+            add("tableswitch", min, max, dflt); //$NON-NLS-1$
+            for (Label label : switchLabels) {
+                add(label);
+            }
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] switchLabels) {
+            add("lookupswitch", dflt, Arrays.toString(keys)); //$NON-NLS-1$
+            for (Label label : switchLabels) {
+                add(label);
+            }
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            add("multianewarray", descriptor, numDimensions); //$NON-NLS-1$
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            add("try", start, end, handler, type); //$NON-NLS-1$
+        }
+
+        @Override
+        public void visitEnd() {
+            result.accept(toFingerprint(digest));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A dynamic Class Data Sharing archive of the classes loaded by the coverage
+ * tool, which makes its JVM start faster. The archive is created at the end of
+ * a first training run with {@code -XX:ArchiveClassesAtExit}, available since
+ * Java 13, and used by later runs with {@code -XX:SharedArchiveFile}. Archives
+ * are kept in a cache folder, named after the coverage tool jar, the Java
+ * runtime and the JVM options, so a new archive is created when any of them
+ * changes. A JVM that cannot use an archive starts without it.
+ */
+final class ClassDataSharing {
+    private final Path archive;
+
+    private final Path trainingArchive;
+
+    private ClassDataSharing(Path archive, Path trainingArchive) {
+        this.archive = archive;
+        this.trainingArchive = trainingArchive;
+    }
+
+    /**
+     * Returns the archive for a coverage tool run with the Java runtime of this
+     * JVM and the given JVM options, or {@code null} if that runtime does not
+     * support dynamic archives.
+     */
+    static ClassDataSharing prepare(Path cacheDir, Path covtoolJar, List<String> vmArgs) throws IOException {
+        if (!isSupported(System.getProperty("java.specification.version"))) { //$NON-NLS-1$
+            return null;
+        }
+        String key = new InputFingerprint().add("covtool", covtoolJar.toFile()) //$NON-NLS-1$
+                .add("java.home", System.getProperty("java.home")) //$NON-NLS-1$ //$NON-NLS-2$
+                .add("java.vm.version", System.getProperty("java.vm.version")) //$NON-NLS-1$ //$NON-NLS-2$
+                .add("vmArgs", vmArgs) //$NON-NLS-1$
+                .get().substring(0, 16);
+        Path archive = cacheDir.resolve("jtestcov-" + key + ".jsa"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (Files.isRegularFile(archive) && Files.size(archive) > 0) {
+            return new ClassDataSharing(archive, null);
+        }
+        Files.createDirectories(cacheDir);
+        return new ClassDataSharing(archive,
+                cacheDir.resolve(archive.getFileName() + "." + UUID.randomUUID() + ".tmp")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    static boolean isSupported(String javaSpecificationVersion) {
+        if (javaSpecificationVersion == null || javaSpecificationVersion.startsWith("1.")) { //$NON-NLS-1$
+            return false;
+        }
+        try {
+            return Integer.parseInt(javaSpecificationVersion) >= 13;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether a line written by the JVM to its standard error reports
+     * that it could not map or use a shared archive.
+     */
+    static boolean isArchiveError(String line) {
+        String lowerCaseLine = line.toLowerCase(Locale.ROOT);
+        return lowerCaseLine.contains("shared archive") || lowerCaseLine.contains("[cds]") //$NON-NLS-1$ //$NON-NLS-2$
+                || lowerCaseLine.contains("sharedarchivefile"); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns whether this run creates the archive.
+     */
+    boolean isTraining() {
+        return trainingArchive != null;
+    }
+
+    Path getArchive() {
+        return archive;
+    }
+
+    /**
+     * Returns the JVM options that create or use the archive.
+     */
+    List<String> getVmArgs() {
+        return Collections.singletonList(isTraining() ? "-XX:ArchiveClassesAtExit=" + trainingArchive //$NON-NLS-1$
+                : "-XX:SharedArchiveFile=" + archive); //$NON-NLS-1$
+    }
+
+    /**
+     * Publishes the archive created by a successful training run, unless
+     * another build published one first, and discards it otherwise.
+     */
+    void complete(boolean success) throws IOException {
+        if (!isTraining()) {
+            return;
+        }
+        try {
+            if (success && Files.isRegularFile(trainingArchive) && Files.size(trainingArchive) > 0
+                    && !Files.exists(archive)) {
+                try {
+                    Files.move(trainingArchive, archive, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+                    // another build published the archive
+                }
+            }
+        } finally {
+            Files.deleteIfExists(trainingArchive);
+        }
+    }
+
+    /**
+     * Deletes the archive after a run that reported it could not use it.
+     */
+    void invalidate() throws IOException {
+        Files.deleteIfExists(archive);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads gzip compressed baseline XML coverage reports, named {@code *.gz}. The
+ * coverage tool reads an uncompressed report, so a compressed baseline is
+ * decompressed into a cache folder under the hash of its content and only
+ * decompressed again when its content changes. The most recently used
+ * {@link #MAX_CACHED} baselines are kept, and so are the baselines used in the
+ * last {@link #MIN_UNUSED_MILLIS}, which a build in another workspace may still
+ * be reading.
+ */
+final class CompressedBaseline {
+    static final int MAX_CACHED = 4;
+
+    /**
+     * Cache entries used within this time are not removed.
+     */
+    static final long MIN_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final String GZIP_EXTENSION = ".gz"; //$NON-NLS-1$
+
+    private static final String ZSTD_EXTENSION = ".zst"; //$NON-NLS-1$
+
+    private static final String XML_EXTENSION = ".xml"; //$NON-NLS-1$
+
+    private final Path file;
+
+    private final long compressedBytes;
+
+    private final long bytes;
+
+    private final boolean cached;
+
+    private final long millis;
+
+    private CompressedBaseline(Path file, long compressedBytes, long bytes, boolean cached, long millis) {
+        this.file = file;
+        this.compressedBytes = compressedBytes;
+        this.bytes = bytes;
+        this.cached = cached;
+        this.millis = millis;
+    }
+
+    static boolean isCompressed(Path baseline) {
+        return baseline.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * Checks that a baseline is readable: uncompressed, or compressed with a
+     * valid gzip header.
+     *
+     * @throws IOException with a user message if it is not
+     */
+    static void check(Path baseline) throws IOException {
+        String fileName = baseline.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (fileName.endsWith(ZSTD_EXTENSION)) {
+            throw new IOException(Messages.get("baseline.compression.unsupported", baseline)); //$NON-NLS-1$
+        }
+        if (isCompressed(baseline)) {
+            try (InputStream in = Files.newInputStream(baseline)) {
+                if (in.read() != (GZIPInputStream.GZIP_MAGIC & 0xFF) || in.read() != GZIPInputStream.GZIP_MAGIC >> 8) {
+                    throw new IOException(Messages.get("baseline.invalid", baseline, "Not in GZIP format")); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a baseline for streaming, decompressing it on the fly if it is
+     * compressed.
+     */
+    static InputStream open(Path baseline) throws IOException {
+        InputStream in = Files.newInputStream(baseline);
+        try {
+            return isCompressed(baseline) ? new GZIPInputStream(in, 64 * 1024) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether a baseline, compressed or not, contains a text, such as
+     * the file name of the application it was recorded against.
+     */
+    static boolean contains(Path baseline, String text) throws IOException {
+        byte[] pattern = text.getBytes(StandardCharsets.UTF_8);
+        if (pattern.length == 0) {
+            return true;
+        }
+        // Knuth-Morris-Pratt, so that the baseline is read once as a stream
+        int[] fallback = new int[pattern.length];
+        for (int i = 1, k = 0; i < pattern.length; i++) {
+            while (k > 0 && pattern[i] != pattern[k]) {
+                k = fallback[k - 1];
+            }
+            if (pattern[i] == pattern[k]) {
+                k++;
+            }
+            fallback[i] = k;
+        }
+        try (InputStream in = open(baseline)) {
+            byte[] buffer = new byte[64 * 1024];
+            int matched = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    while (matched > 0 && buffer[i] != pattern[matched]) {
+                        matched = fallback[matched - 1];
+                    }
+                    if (buffer[i] == pattern[matched] && ++matched == pattern.length) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the decompressed copy of a compressed baseline in the cache
+     * folder, decompressing it if it is not cached yet.
+     */
+    static CompressedBaseline decompress(Path baseline, Path cacheDir) throws IOException {
+        long start = System.nanoTime();
+        long compressedBytes = Files.size(baseline);
+        Path file = cacheDir.resolve(InputFingerprint.hash(baseline) + XML_EXTENSION);
+        if (Files.isRegularFile(file)) {
+            // marks the copy as recently used
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new CompressedBaseline(file, compressedBytes, Files.size(file), true,
+                    (System.nanoTime() - start) / 1000000);
+        }
+        Files.createDirectories(cacheDir);
+        Path tempFile = Files.createTempFile(cacheDir, file.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+        try {
+            try (InputStream in = open(baseline); OutputStream out = Files.newOutputStream(tempFile)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IOException(Messages.get("baseline.invalid", baseline, e.getMessage()), e); //$NON-NLS-1$
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        evict(cacheDir);
+        return new CompressedBaseline(file, compressedBytes, Files.size(file), false,
+                (System.nanoTime() - start) / 1000000);
+    }
+
+    private static void evict(Path cacheDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            files = stream.filter(f -> f.getFileName().toString().endsWith(XML_EXTENSION))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        if (files.size() <= MAX_CACHED) {
+            return;
+        }
+        files.sort(Comparator.comparing(CompressedBaseline::getLastModifiedTime, Comparator.reverseOrder()));
+        long oldest = System.currentTimeMillis() - MIN_UNUSED_MILLIS;
+        for (Path stale : files.subList(MAX_CACHED, files.size())) {
+            if (getLastModifiedTime(stale).toMillis() < oldest) {
+                Files.deleteIfExists(stale);
+            }
+        }
+    }
+
+    private static FileTime getLastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Returns the decompressed baseline.
+     */
+    Path getFile() {
+        return file;
+    }
+
+    long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns whether the decompressed baseline was found in the cache.
+     */
+    boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Returns the time spent decompressing, or looking up the cache.
+     */
+    long getMillis() {
+        return millis;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Merges the XML coverage reports of several test runs, for example of the
+ * shards of the {@code impacted-tests} goal, into one coverage map that lists
+ * the tests covering each method, to compile with the {@code baseline-index}
+ * goal. The coverage map keeps only the classes, methods and tests of the
+ * reports, so it is not a baseline for the coverage tool, and the
+ * {@code impacted-tests} goals reject it as their {@code baseline}.
+ */
+@Mojo(name = "coverage-merge", threadSafe = true)
+public class CoverageMergeMojo extends AbstractSelenicMojo {
+
+    /**
+     * Specifies the XML coverage reports to merge, optionally compressed with
+     * gzip.
+     */
+    @Parameter(property = "selenic.coverage.reports", required = true)
+    private List<File> reports;
+
+    /**
+     * Specifies the merged coverage map.
+     */
+    @Parameter(property = "selenic.coverage.mergedCoverage", defaultValue = "${project.build.directory}/selenic/coverage-map.xml")
+    private File mergedCoverage;
+
+    /**
+     * Specifies the maximum number of coverage records held in memory. Records
+     * beyond this number are sorted and spilled to temporary files under
+     * {@code target/selenic/merge}.
+     */
+    @Parameter(property = "selenic.coverage.mergeBufferSize", defaultValue = "500000")
+    private int mergeBufferSize; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the number of coverage reports read in parallel. Use the number
+     * of available processors if 0.
+     */
+    @Parameter(property = "selenic.coverage.mergeThreads", defaultValue = "0")
+    private int mergeThreads; // parasoft-suppress OPT.CTLV "injected"
+
+    @Override
+    protected void doExecute(File settingsFile) throws MojoExecutionException {
+        List<Path> reportPaths = new ArrayList<>(reports.size());
+        for (File report : reports) {
+            if (!report.isFile()) {
+                throw new MojoExecutionException(Messages.get("baseline.missing", report)); //$NON-NLS-1$
+            }
+            reportPaths.add(report.toPath());
+        }
+        try {
+            for (Path report : reportPaths) {
+                CompressedBaseline.check(report);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        Path tempDir = new File(project.getBuild().getDirectory()).toPath().resolve("selenic").resolve("merge"); //$NON-NLS-1$ //$NON-NLS-2$
+        int threads = mergeThreads > 0 ? mergeThreads : Runtime.getRuntime().availableProcessors();
+        long start = System.currentTimeMillis();
+        CoverageMerger merger = new CoverageMerger(tempDir, Math.max(1, mergeBufferSize));
+        try {
+            merger.merge(reportPaths, mergedCoverage.toPath(), threads);
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } finally {
+            try {
+                AbstractCoverageMojo.delete(tempDir);
+            } catch (IOException e) {
+                getLog().debug(e);
+            }
+        }
+        getLog().info(Messages.get("coverage.merged", reportPaths.size(), mergedCoverage, merger.getTestCount(), //$NON-NLS-1$
+                merger.getMethodCount(), System.currentTimeMillis() - start));
+    }
+}
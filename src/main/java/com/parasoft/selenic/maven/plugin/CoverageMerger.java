@@ -0,0 +1,580 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Merges several XML coverage reports, for example of test runs split across
+ * machines, into one coverage map. Each report is read with StAX into sorted runs
+ * of coverage records of at most {@code maxRecordsInMemory} records which are
+ * spilled to temporary files, the reports being read in parallel. The runs are
+ * then merged in k-way passes of at most {@code maxFanIn} runs each, so memory
+ * use and open files depend on the number of tests, not on the size of the
+ * reports.
+ * <p>
+ * The reports are read in the vocabulary of {@link BaselineIndexCompiler}. The
+ * coverage map is written in the same vocabulary, tests being identified by
+ * name across reports. Everything else in the reports is left out, so the
+ * coverage map is marked with a {@code format} attribute and is only meant for
+ * {@link BaselineIndexCompiler}, not as a baseline for the coverage tool:
+ * </p>
+ *
+ * <pre>{@literal <Coverage format="selenic-coverage-map">}
+ *  {@literal <Class name="com.foo.Bar">}
+ *    {@literal <Method name="baz">}
+ *      {@literal <Covered testIds="0 1"/>}
+ *    {@literal </Method>}
+ *  {@literal </Class>}
+ *  {@literal <Test id="0" name="..."/>}
+ *{@literal </Coverage>}</pre>
+ */
+final class CoverageMerger {
+    static final String COVERAGE = "Coverage"; //$NON-NLS-1$
+
+    static final String COVERED = "Covered"; //$NON-NLS-1$
+
+    static final String FORMAT = "format"; //$NON-NLS-1$
+
+    static final String COVERAGE_MAP_FORMAT = "selenic-coverage-map"; //$NON-NLS-1$
+
+    static final int DEFAULT_MAX_FAN_IN = 64;
+
+    private final Path tempDir;
+
+    private final int maxRecordsInMemory;
+
+    private final int maxFanIn;
+
+    private int testCount;
+
+    private int methodCount;
+
+    /**
+     * @param tempDir            the directory of the spilled runs
+     * @param maxRecordsInMemory the maximum number of coverage records held in
+     *                           memory by all the threads together
+     */
+    CoverageMerger(Path tempDir, int maxRecordsInMemory) {
+        this(tempDir, maxRecordsInMemory, DEFAULT_MAX_FAN_IN);
+    }
+
+    /**
+     * @param tempDir            the directory of the spilled runs
+     * @param maxRecordsInMemory the maximum number of coverage records held in
+     *                           memory by all the threads together
+     * @param maxFanIn           the maximum number of runs open at once, the
+     *                           runs being merged in several passes beyond it
+     */
+    CoverageMerger(Path tempDir, int maxRecordsInMemory, int maxFanIn) {
+        this.tempDir = tempDir;
+        this.maxRecordsInMemory = maxRecordsInMemory;
+        this.maxFanIn = Math.max(2, maxFanIn);
+    }
+
+    /**
+     * Merges the reports into the baseline, replacing it atomically.
+     *
+     * @param threads the number of reports read in parallel
+     */
+    void merge(List<Path> reports, Path baseline, int threads) throws IOException {
+        Files.createDirectories(tempDir);
+        int poolSize = Math.max(1, Math.min(threads, reports.size()));
+        int recordsPerThread = Math.max(1, maxRecordsInMemory / poolSize);
+        List<Path> runs = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<Future<List<Path>>> futures = new ArrayList<>(reports.size());
+            for (int i = 0; i < reports.size(); i++) {
+                Path report = reports.get(i);
+                String runPrefix = "report" + i + '-'; //$NON-NLS-1$
+                futures.add(executor.submit(() -> spill(report, runPrefix, recordsPerThread)));
+            }
+            for (Future<List<Path>> future : futures) {
+                runs.addAll(future.get());
+            }
+            reduce(runs);
+            Path parent = baseline.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tempFile = Files.createTempFile(parent, baseline.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024)) {
+                    write(runs, out);
+                }
+                Files.move(tempFile, baseline, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            executor.shutdownNow();
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tests in the merged baseline.
+     */
+    int getTestCount() {
+        return testCount;
+    }
+
+    /**
+     * Returns the number of covered methods in the merged baseline.
+     */
+    int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * Spills the coverage records of a report to sorted runs.
+     *
+     * @throws IOException if the report has no coverage records, for example
+     *                     because it is not in the expected vocabulary
+     */
+    private List<Path> spill(Path report, String runPrefix, int recordsPerRun) throws IOException {
+        Map<String, String> testNames = readTestNames(report);
+        List<Path> runs = new ArrayList<>();
+        List<Record> records = new ArrayList<>(Math.min(recordsPerRun, 64 * 1024));
+        long recordCount = 0;
+        boolean success = false;
+        try (InputStream in = new BufferedInputStream(CompressedBaseline.open(report), 64 * 1024)) {
+            XMLStreamReader reader = createReader(in);
+            try {
+                String className = null;
+                String methodName = null;
+                int methodDepth = -1;
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        String localName = reader.getLocalName();
+                        if (BaselineIndexCompiler.CLASS.equals(localName)) {
+                            className = reader.getAttributeValue(null, BaselineIndexCompiler.NAME);
+                        } else if (BaselineIndexCompiler.METHOD.equals(localName) && className != null) {
+                            methodName = reader.getAttributeValue(null, BaselineIndexCompiler.NAME);
+                            methodDepth = depth;
+                        } else if (methodDepth >= 0) {
+                            for (String attribute : new String[] { BaselineIndexCompiler.TEST_ID,
+                                    BaselineIndexCompiler.TEST_IDS }) {
+                                String references = reader.getAttributeValue(null, attribute);
+                                if (references == null) {
+                                    continue;
+                                }
+                                for (String reference : references.split("[\\s,]+")) { //$NON-NLS-1$
+                                    if (!reference.isEmpty()) {
+                                        records.add(new Record(className, methodName,
+                                                testNames.getOrDefault(reference, reference)));
+                                        recordCount++;
+                                        if (records.size() >= recordsPerRun) {
+                                            runs.add(writeRun(records, runPrefix + runs.size()));
+                                            records.clear();
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == methodDepth) {
+                            methodName = null;
+                            methodDepth = -1;
+                        } else if (BaselineIndexCompiler.CLASS.equals(reader.getLocalName())) {
+                            className = null;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            if (!records.isEmpty()) {
+                runs.add(writeRun(records, runPrefix + runs.size()));
+            }
+            if (recordCount == 0) {
+                throw new IOException(Messages.get("baseline.no.coverage", report)); //$NON-NLS-1$
+            }
+            success = true;
+            return runs;
+        } catch (XMLStreamException e) {
+            throw new IOException(Messages.get("baseline.invalid", report, e.getMessage()), e); //$NON-NLS-1$
+        } finally {
+            if (!success) {
+                for (Path run : runs) {
+                    Files.deleteIfExists(run);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the names of the tests of a report by their ids in a first pass, as
+     * tests may be declared after the code they cover.
+     */
+    private static Map<String, String> readTestNames(Path report) throws IOException {
+        Map<String, String> testNames = new HashMap<>();
+        try (InputStream in = new BufferedInputStream(CompressedBaseline.open(report), 64 * 1024)) {
+            XMLStreamReader reader = createReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && BaselineIndexCompiler.TEST.equals(reader.getLocalName())) {
+                        String name = reader.getAttributeValue(null, BaselineIndexCompiler.NAME);
+                        String id = reader.getAttributeValue(null, BaselineIndexCompiler.ID);
+                        if (name != null && id != null) {
+                            testNames.put(id, name);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(Messages.get("baseline.invalid", report, e.getMessage()), e); //$NON-NLS-1$
+        }
+        return testNames;
+    }
+
+    private Path writeRun(List<Record> records, String prefix) throws IOException {
+        Collections.sort(records);
+        Path run = Files.createTempFile(tempDir, prefix, ".run"); //$NON-NLS-1$
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), 64 * 1024))) {
+            Record previous = null;
+            for (Record record : records) {
+                if (!record.equals(previous)) {
+                    record.write(out);
+                    previous = record;
+                }
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Merges the first runs into one until at most {@code maxFanIn} runs are
+     * left, deleting the merged runs.
+     */
+    private void reduce(List<Path> runs) throws IOException {
+        int pass = 0;
+        while (runs.size() > maxFanIn) {
+            List<Path> group = new ArrayList<>(runs.subList(0, maxFanIn));
+            Path merged = Files.createTempFile(tempDir, "pass" + pass++ + '-', ".run"); //$NON-NLS-1$ //$NON-NLS-2$
+            runs.add(merged);
+            PriorityQueue<RunReader> queue = open(group);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(merged), 64 * 1024))) {
+                Record previous = null;
+                Record record;
+                while ((record = poll(queue)) != null) {
+                    if (!record.equals(previous)) {
+                        record.write(out);
+                        previous = record;
+                    }
+                }
+            } finally {
+                for (RunReader runReader : queue) {
+                    runReader.close();
+                }
+            }
+            runs.subList(0, maxFanIn).clear();
+            for (Path run : group) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private static PriorityQueue<RunReader> open(List<Path> runs) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()));
+        try {
+            for (Path run : runs) {
+                RunReader runReader = new RunReader(run);
+                if (runReader.next()) {
+                    queue.add(runReader);
+                } else {
+                    runReader.close();
+                }
+            }
+        } catch (IOException e) {
+            for (RunReader runReader : queue) {
+                runReader.close();
+            }
+            throw e;
+        }
+        return queue;
+    }
+
+    /**
+     * Returns the smallest record of the runs, or {@code null} when all runs
+     * are read, closing the runs as they are read.
+     */
+    private static Record poll(PriorityQueue<RunReader> queue) throws IOException {
+        RunReader runReader = queue.poll();
+        if (runReader == null) {
+            return null;
+        }
+        Record record = runReader.current;
+        if (runReader.next()) {
+            queue.add(runReader);
+        } else {
+            runReader.close();
+        }
+        return record;
+    }
+
+    private void write(List<Path> runs, OutputStream out) throws IOException {
+        Map<String, Integer> testIds = new LinkedHashMap<>();
+        PriorityQueue<RunReader> queue = open(runs);
+        try {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8"); //$NON-NLS-1$
+            writer.writeStartDocument("UTF-8", "1.0"); //$NON-NLS-1$ //$NON-NLS-2$
+            writer.writeStartElement(COVERAGE);
+            writer.writeAttribute(FORMAT, COVERAGE_MAP_FORMAT);
+            String className = null;
+            Record method = null;
+            StringBuilder ids = new StringBuilder();
+            Record previous = null;
+            Record record;
+            while ((record = poll(queue)) != null) {
+                if (record.equals(previous)) {
+                    continue;
+                }
+                previous = record;
+                if (method == null || !record.sameMethod(method)) {
+                    writeMethodEnd(writer, ids);
+                    if (!record.className.equals(className)) {
+                        if (className != null) {
+                            writer.writeEndElement();
+                        }
+                        className = record.className;
+                        writer.writeStartElement(BaselineIndexCompiler.CLASS);
+                        writer.writeAttribute(BaselineIndexCompiler.NAME, className);
+                    }
+                    method = record;
+                    methodCount++;
+                    writer.writeStartElement(BaselineIndexCompiler.METHOD);
+                    writer.writeAttribute(BaselineIndexCompiler.NAME, record.methodName);
+                }
+                Integer testId = testIds.computeIfAbsent(record.testName, k -> testIds.size());
+                ids.append(ids.length() == 0 ? "" : " ").append(testId); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            writeMethodEnd(writer, ids);
+            if (className != null) {
+                writer.writeEndElement();
+            }
+            for (Map.Entry<String, Integer> test : testIds.entrySet()) {
+                writer.writeEmptyElement(BaselineIndexCompiler.TEST);
+                writer.writeAttribute(BaselineIndexCompiler.ID, test.getValue().toString());
+                writer.writeAttribute(BaselineIndexCompiler.NAME, test.getKey());
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+            testCount = testIds.size();
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            for (RunReader runReader : queue) {
+                runReader.close();
+            }
+        }
+    }
+
+    private static void writeMethodEnd(XMLStreamWriter writer, StringBuilder ids) throws XMLStreamException {
+        // every written method covers at least one test
+        if (ids.length() > 0) {
+            writer.writeEmptyElement(COVERED);
+            writer.writeAttribute(BaselineIndexCompiler.TEST_IDS, ids.toString());
+            writer.writeEndElement(); // Method
+            ids.setLength(0);
+        }
+    }
+
+    /**
+     * Returns whether a file, optionally compressed, is a coverage map written
+     * by this class.
+     */
+    static boolean isCoverageMap(Path file) {
+        try (InputStream in = new BufferedInputStream(CompressedBaseline.open(file))) {
+            XMLStreamReader reader = createReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        return COVERAGE.equals(reader.getLocalName())
+                                && COVERAGE_MAP_FORMAT.equals(reader.getAttributeValue(null, FORMAT));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            // not XML
+        }
+        return false;
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(in);
+    }
+
+    private static final class Record implements Comparable<Record> {
+        final String className;
+
+        final String methodName;
+
+        final String testName;
+
+        Record(String className, String methodName, String testName) {
+            this.className = className;
+            this.methodName = methodName == null ? "" : methodName; //$NON-NLS-1$
+            this.testName = testName;
+        }
+
+        boolean sameMethod(Record other) {
+            return className.equals(other.className) && methodName.equals(other.methodName);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeString(out, className);
+            writeString(out, methodName);
+            writeString(out, testName);
+        }
+
+        @Override
+        public int compareTo(Record other) {
+            int result = className.compareTo(other.className);
+            if (result == 0) {
+                result = methodName.compareTo(other.methodName);
+            }
+            return result != 0 ? result : testName.compareTo(other.testName);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Record)) {
+                return false;
+            }
+            Record other = (Record) obj;
+            return sameMethod(other) && testName.equals(other.testName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(className, methodName, testName);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.asList(className, methodName, testName).toString();
+        }
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes, unlike
+     * {@link DataOutputStream#writeUTF(String)} which is limited to 64 KB, as
+     * long parameterized test names may be.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static final class RunReader implements Comparable<RunReader>, Closeable {
+        private final DataInputStream in;
+
+        Record current;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 16 * 1024));
+        }
+
+        boolean next() throws IOException {
+            String className;
+            try {
+                className = readString(in);
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            current = new Record(className, readString(in), readString(in));
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return current.compareTo(other.current);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Long-lived process that keeps the coverage tool loaded and runs it on request
+ * of {@link CovtoolDaemonClient}. It listens on a loopback port that is
+ * published with a random token in a registry file, runs one request at a
+ * time, and exits after being idle for the configured time.
+ * <p>
+ * The coverage tool writes its results relative to the working directory, so
+ * each request runs in the private work folder of the daemon, whose content is
+ * then moved to the work folder of the requesting build.
+ * </p>
+ */
+public final class CovtoolDaemon {
+    static final int PROTOCOL_VERSION = 1;
+
+    static final String PORT = "port"; //$NON-NLS-1$
+
+    static final String TOKEN = "token"; //$NON-NLS-1$
+
+    static final String COMPATIBILITY = "compatibility"; //$NON-NLS-1$
+
+    static final int FRAME_OUT = 1;
+
+    static final int FRAME_ERR = 2;
+
+    static final int FRAME_EXIT = 3;
+
+    static final int FRAME_INCOMPATIBLE = 4;
+
+    private CovtoolDaemon() {
+    }
+
+    /**
+     * Arguments: coverage tool jar, registry file, compatibility key, token, and
+     * idle timeout in milliseconds, 0 for none.
+     */
+    public static void main(String[] args) throws Exception {
+        Path covtoolJar = Paths.get(args[0]);
+        Path registryFile = Paths.get(args[1]);
+        String compatibility = args[2];
+        String token = args[3];
+        long idleTimeout = Long.parseLong(args[4]);
+        Path workDir = Paths.get("").toAbsolutePath(); //$NON-NLS-1$
+        CovtoolRunner runner = CovtoolRunner.get(covtoolJar);
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            publish(registryFile, serverSocket.getLocalPort(), compatibility, token);
+            long idleDeadline = System.currentTimeMillis() + idleTimeout;
+            while (true) {
+                // a socket timeout is an int, so a long idle timeout is waited for in steps
+                long remaining = idleTimeout <= 0 ? 0 : idleDeadline - System.currentTimeMillis();
+                if (idleTimeout > 0 && remaining <= 0) {
+                    break;
+                }
+                serverSocket.setSoTimeout((int) Math.min(remaining, Integer.MAX_VALUE));
+                try (Socket socket = serverSocket.accept()) {
+                    handle(socket, runner, workDir, compatibility, token);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                } catch (IOException | RuntimeException e) {
+                    // a failed request does not stop the daemon
+                    e.printStackTrace(err);
+                } finally {
+                    System.setOut(out);
+                    System.setErr(err);
+                }
+                idleDeadline = System.currentTimeMillis() + idleTimeout;
+            }
+        } finally {
+            unpublish(registryFile, token);
+        }
+        out.println("Idle timeout reached, stopping"); //$NON-NLS-1$
+        System.exit(0);
+    }
+
+    private static void publish(Path registryFile, int port, String compatibility, String token) throws IOException {
+        Properties registry = new Properties();
+        registry.setProperty(PORT, Integer.toString(port));
+        registry.setProperty(COMPATIBILITY, compatibility);
+        registry.setProperty(TOKEN, token);
+        Path tempFile = Files.createTempFile(registryFile.getParent(), "registry", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            registry.store(out, null);
+        }
+        Files.move(tempFile, registryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void unpublish(Path registryFile, String token) {
+        Properties registry = CovtoolDaemonClient.readRegistry(registryFile);
+        if (registry != null && token.equals(registry.getProperty(TOKEN))) {
+            try {
+                Files.deleteIfExists(registryFile);
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
+
+    private static void handle(Socket socket, CovtoolRunner runner, Path workDir, String compatibility, String token)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (in.readInt() != PROTOCOL_VERSION || !token.equals(in.readUTF())
+                || !compatibility.equals(in.readUTF())) {
+            out.writeByte(FRAME_INCOMPATIBLE);
+            out.flush();
+            return;
+        }
+        Path targetDir = Paths.get(in.readUTF());
+        int size = in.readInt();
+        String[] args = new String[size];
+        for (int i = 0; i < size; i++) {
+            args[i] = in.readUTF();
+        }
+        for (Path child : CovtoolRunner.list(workDir)) {
+            CovtoolRunner.delete(child);
+        }
+        System.setOut(new PrintStream(new FrameOutputStream(out, FRAME_OUT), true));
+        System.setErr(new PrintStream(new FrameOutputStream(out, FRAME_ERR), true));
+        // printed to the redirected error stream, shown by the client
+        int exitCode = runner.run(args, workDir, targetDir, Throwable::printStackTrace);
+        System.out.flush();
+        System.err.flush();
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        private final int type;
+
+        private FrameOutputStream(DataOutputStream out, int type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.lang.System.lineSeparator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Sends coverage tool runs to a {@link CovtoolDaemon}, starting one when no
+ * compatible daemon is running. Daemons are compatible when they use the same
+ * coverage tool jar content, JVM and JVM options.
+ */
+final class CovtoolDaemonClient {
+    private static final Object LOCK = new Object();
+
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    private static final long START_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * A daemon log larger than this is moved to a {@code .1} file, replacing
+     * the previous one, when a new daemon starts.
+     */
+    static final long MAX_LOG_BYTES = 1024 * 1024;
+
+    private final Log log;
+
+    private final Path covtoolJar;
+
+    private final String javaExe;
+
+    private final List<String> vmArgs;
+
+    private final int idleTimeoutMinutes;
+
+    CovtoolDaemonClient(Log log, Path covtoolJar, String javaExe, List<String> vmArgs, int idleTimeoutMinutes) {
+        this.log = log;
+        this.covtoolJar = covtoolJar;
+        this.javaExe = javaExe;
+        this.vmArgs = vmArgs;
+        this.idleTimeoutMinutes = idleTimeoutMinutes;
+    }
+
+    /**
+     * Runs the coverage tool in a daemon and returns its exit code.
+     *
+     * @throws IOException if no daemon could be used; the caller is expected to
+     *                     fall back to forking the coverage tool
+     */
+    int run(List<String> arguments, File covtoolWorkDir) throws IOException {
+        String compatibility = new InputFingerprint()
+                .add("protocol", Integer.toString(CovtoolDaemon.PROTOCOL_VERSION)) //$NON-NLS-1$
+                .add("covtool", covtoolJar.toFile()) //$NON-NLS-1$
+                .add("java", javaExe) //$NON-NLS-1$
+                .add("vmArgs", vmArgs) //$NON-NLS-1$
+                .get();
+        Path daemonDir = Paths.get(System.getProperty("user.home"), ".selenic", "daemon"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        String name = compatibility.substring(0, 16);
+        Path registryFile = daemonDir.resolve(name + ".properties"); //$NON-NLS-1$
+        try (Socket socket = connect(daemonDir, name, registryFile, compatibility)) {
+            Properties registry = readRegistry(registryFile);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(CovtoolDaemon.PROTOCOL_VERSION);
+            out.writeUTF(registry == null ? "" : registry.getProperty(CovtoolDaemon.TOKEN, "")); //$NON-NLS-1$ //$NON-NLS-2$
+            out.writeUTF(compatibility);
+            out.writeUTF(covtoolWorkDir.getAbsolutePath());
+            out.writeInt(arguments.size());
+            for (String argument : arguments) {
+                out.writeUTF(argument);
+            }
+            out.flush();
+            return readResponse(socket.getInputStream(), registryFile);
+        }
+    }
+
+    private Socket connect(Path daemonDir, String name, Path registryFile, String compatibility) throws IOException {
+        synchronized (LOCK) {
+            Files.createDirectories(daemonDir);
+            try (FileChannel channel = FileChannel.open(daemonDir.resolve(name + ".lock"), //$NON-NLS-1$
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                Socket socket = tryConnect(registryFile);
+                if (socket != null) {
+                    log.debug("Using running coverage tool daemon " + name); //$NON-NLS-1$
+                    return socket;
+                }
+                Process process = startDaemon(daemonDir, name, registryFile, compatibility);
+                long deadline = System.currentTimeMillis() + START_TIMEOUT;
+                while (System.currentTimeMillis() < deadline && process.isAlive()) {
+                    socket = tryConnect(registryFile);
+                    if (socket != null) {
+                        return socket;
+                    }
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                process.destroy();
+                throw new IOException(Messages.get("daemon.not.started", daemonDir.resolve(name + ".log"))); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+    }
+
+    private static Socket tryConnect(Path registryFile) {
+        Properties registry = readRegistry(registryFile);
+        if (registry == null) {
+            return null;
+        }
+        Socket socket = new Socket();
+        try {
+            int port = Integer.parseInt(registry.getProperty(CovtoolDaemon.PORT));
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT);
+            return socket;
+        } catch (IOException | RuntimeException e) {
+            try {
+                socket.close();
+                Files.deleteIfExists(registryFile);
+            } catch (IOException e1) {
+                // ignored
+            }
+            return null;
+        }
+    }
+
+    private Process startDaemon(Path daemonDir, String name, Path registryFile, String compatibility)
+            throws IOException {
+        Path workDir = Files.createDirectories(daemonDir.resolve(name));
+        List<String> command = new LinkedList<>();
+        command.add(javaExe);
+        if (CovtoolRunner.requiresSecurityManagerAllow(System.getProperty("java.specification.version"))) { //$NON-NLS-1$
+            command.add("-Djava.security.manager=allow"); //$NON-NLS-1$
+        }
+        if (vmArgs != null) {
+            command.addAll(vmArgs);
+        }
+        command.add("-cp"); //$NON-NLS-1$
+        command.add(getPluginClasspath());
+        command.add(CovtoolDaemon.class.getName());
+        command.add(covtoolJar.toAbsolutePath().toString());
+        command.add(registryFile.toAbsolutePath().toString());
+        command.add(compatibility);
+        command.add(UUID.randomUUID().toString());
+        command.add(Long.toString(TimeUnit.MINUTES.toMillis(idleTimeoutMinutes)));
+        if (log.isDebugEnabled()) {
+            log.debug("daemon command:" + lineSeparator() + String.join(lineSeparator(), command)); //$NON-NLS-1$
+        }
+        log.info(Messages.get("daemon.starting", name)); //$NON-NLS-1$
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workDir.toFile());
+        pb.redirectErrorStream(true);
+        Path logFile = daemonDir.resolve(name + ".log"); //$NON-NLS-1$
+        rotateLog(logFile);
+        pb.redirectOutput(ProcessBuilder.Redirect.appendTo(logFile.toFile()));
+        return pb.start();
+    }
+
+    /**
+     * Moves a log larger than {@link #MAX_LOG_BYTES} to a {@code .1} file, so
+     * that the logs of a daemon take at most twice that size.
+     */
+    static void rotateLog(Path logFile) {
+        try {
+            if (Files.isRegularFile(logFile) && Files.size(logFile) > MAX_LOG_BYTES) {
+                Files.move(logFile, logFile.resolveSibling(logFile.getFileName() + ".1"), //$NON-NLS-1$
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // still in use, for example by a daemon that did not stop, and appended to
+        }
+    }
+
+    private static String getPluginClasspath() throws IOException {
+        try {
+            return Paths.get(CovtoolDaemon.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .toString();
+        } catch (URISyntaxException | RuntimeException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static int readResponse(InputStream socketIn, Path registryFile) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socketIn));
+        byte[] buffer = new byte[8192];
+        while (true) {
+            int type = in.readByte();
+            switch (type) {
+            case CovtoolDaemon.FRAME_OUT:
+            case CovtoolDaemon.FRAME_ERR:
+                PrintStream stream = type == CovtoolDaemon.FRAME_OUT ? System.out : System.err;
+                int length = in.readInt();
+                while (length > 0) {
+                    int read = in.read(buffer, 0, Math.min(length, buffer.length));
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of daemon output"); //$NON-NLS-1$
+                    }
+                    stream.write(buffer, 0, read);
+                    length -= read;
+                }
+                stream.flush();
+                break;
+            case CovtoolDaemon.FRAME_EXIT:
+                return in.readInt();
+            case CovtoolDaemon.FRAME_INCOMPATIBLE:
+                Files.deleteIfExists(registryFile);
+                throw new IOException("Incompatible coverage tool daemon"); //$NON-NLS-1$
+            default:
+                throw new IOException("Unexpected daemon response: " + type); //$NON-NLS-1$
+            }
+        }
+    }
+
+    static Properties readRegistry(Path registryFile) {
+        if (!Files.isRegularFile(registryFile)) {
+            return null;
+        }
+        Properties registry = new Properties();
+        try (InputStream in = Files.newInputStream(registryFile)) {
+            registry.load(in);
+            return registry;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.Permission;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the main class of the coverage tool jar inside the current JVM. The
+ * coverage tool is loaded child-first in its own class loader, and calls to
+ * {@code System.exit} made by the coverage tool are turned into the returned
+ * exit code.
+ */
+final class CovtoolRunner {
+    private static final Map<Path, CovtoolRunner> RUNNERS = new ConcurrentHashMap<>();
+
+    static final String COVERAGE_FOLDER = ".coverage"; //$NON-NLS-1$
+
+    /**
+     * Runs change JVM wide state, the security manager, the console streams and
+     * the results folder in the working directory, so they are serialized across
+     * all runners. This class may be loaded by several plugin realms of a build,
+     * each with its own static fields, so the lock is deliberately an interned
+     * string, which is the same object for all class loaders of the JVM. An
+     * object kept in the system properties would also be shared, but Maven copies
+     * the system properties and expects their values to be strings.
+     */
+    private static final Object RUN_LOCK = "com.parasoft.selenic.maven.plugin.CovtoolRunner.RUN_LOCK".intern(); //$NON-NLS-1$
+
+    /**
+     * Set for the thread running the coverage tool and the threads it starts,
+     * whose {@code System.exit} calls are trapped.
+     */
+    private static final InheritableThreadLocal<Boolean> IN_RUN = new InheritableThreadLocal<>();
+
+    private final URLClassLoader classLoader;
+
+    private final Method mainMethod;
+
+    CovtoolRunner(Path covtoolJar) throws IOException, ReflectiveOperationException {
+        String mainClassName;
+        try (JarFile jarFile = new JarFile(covtoolJar.toFile())) {
+            Manifest manifest = jarFile.getManifest();
+            mainClassName = manifest == null ? null : manifest.getMainAttributes().getValue("Main-Class"); //$NON-NLS-1$
+        }
+        if (mainClassName == null) {
+            throw new IOException("No Main-Class in " + covtoolJar); //$NON-NLS-1$
+        }
+        classLoader = new ChildFirstClassLoader(new URL[] { covtoolJar.toUri().toURL() },
+                ClassLoader.getSystemClassLoader().getParent());
+        mainMethod = Class.forName(mainClassName, false, classLoader).getMethod("main", String[].class); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns the runner for the given coverage tool jar, loading the coverage
+     * tool the first time it is requested. Runners are shared by all builds of
+     * this class loader.
+     */
+    static CovtoolRunner get(Path covtoolJar) throws IOException, ReflectiveOperationException {
+        Path key = covtoolJar.toAbsolutePath().normalize();
+        CovtoolRunner runner = RUNNERS.get(key);
+        if (runner == null) {
+            synchronized (RUNNERS) {
+                runner = RUNNERS.get(key);
+                if (runner == null) {
+                    runner = new CovtoolRunner(key);
+                    RUNNERS.put(key, runner);
+                }
+            }
+        }
+        return runner;
+    }
+
+    /**
+     * Runs the coverage tool with the given arguments and returns its exit code.
+     * The coverage tool writes its results to the {@code .coverage} folder in
+     * the working directory of the JVM, {@code runDir}, which is moved to
+     * {@code targetDir} afterwards. Other files of {@code runDir}, which other
+     * modules or plugins of the build may write to, are left untouched.
+     *
+     * @param errorHandler reports the errors thrown by the coverage tool
+     * @throws IllegalStateException if {@code runDir} already contains coverage
+     *                               tool results, which the run would mix with
+     *                               its own
+     */
+    int run(String[] args, Path runDir, Path targetDir, Consumer<Throwable> errorHandler) throws IOException {
+        synchronized (RUN_LOCK) {
+            Path coverageFolder = runDir.resolve(COVERAGE_FOLDER);
+            if (Files.exists(coverageFolder)) {
+                throw new IllegalStateException(Messages.get("in.process.coverage.folder.exists", coverageFolder)); //$NON-NLS-1$
+            }
+            try {
+                return run(args, errorHandler);
+            } finally {
+                if (Files.exists(coverageFolder)) {
+                    move(coverageFolder, targetDir.resolve(COVERAGE_FOLDER));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("removal")
+    private int run(String[] args, Consumer<Throwable> errorHandler) {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        SecurityManager securityManager = System.getSecurityManager();
+        System.setSecurityManager(new ExitTrap(securityManager));
+        thread.setContextClassLoader(classLoader);
+        IN_RUN.set(Boolean.TRUE);
+        try {
+            mainMethod.invoke(null, (Object) args);
+            return 0;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ExitTrappedException) {
+                return ((ExitTrappedException) cause).status;
+            }
+            errorHandler.accept(cause);
+            return 1;
+        } catch (IllegalAccessException e) {
+            errorHandler.accept(e);
+            return 1;
+        } finally {
+            IN_RUN.remove();
+            System.setSecurityManager(securityManager);
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try (Stream<Path> stream = Files.walk(source)) {
+                for (Path path : stream.collect(Collectors.toList())) {
+                    Path copy = target.resolve(source.relativize(path).toString());
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(copy);
+                    } else {
+                        Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            }
+            delete(source);
+        }
+    }
+
+    static void delete(Path path) throws IOException {
+        try (Stream<Path> stream = Files.walk(path)) {
+            stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns whether the security manager needed to trap {@code System.exit}
+     * must be explicitly allowed with {@code -Djava.security.manager=allow} on
+     * the given Java specification version.
+     */
+    static boolean requiresSecurityManagerAllow(String javaSpecificationVersion) {
+        if (javaSpecificationVersion == null || javaSpecificationVersion.startsWith("1.")) { //$NON-NLS-1$
+            return false;
+        }
+        try {
+            return Integer.parseInt(javaSpecificationVersion) >= 12;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads classes from the coverage tool jar before asking the parent, so the
+     * coverage tool never sees other versions of its libraries.
+     */
+    private static final class ChildFirstClassLoader extends URLClassLoader {
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        private ChildFirstClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loadedClass = findLoadedClass(name);
+                if (loadedClass == null && !name.startsWith("java.")) { //$NON-NLS-1$
+                    try {
+                        loadedClass = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        // fall back to the parent
+                    }
+                }
+                if (loadedClass == null) {
+                    return super.loadClass(name, resolve);
+                }
+                if (resolve) {
+                    resolveClass(loadedClass);
+                }
+                return loadedClass;
+            }
+        }
+
+        @Override
+        public URL getResource(String name) {
+            URL resource = findResource(name);
+            return resource != null ? resource : super.getResource(name);
+        }
+    }
+
+    private static final class ExitTrappedException extends SecurityException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private ExitTrappedException(int status) {
+            this.status = status;
+        }
+    }
+
+    @SuppressWarnings("removal")
+    private static final class ExitTrap extends SecurityManager {
+        private final SecurityManager delegate;
+
+        private ExitTrap(SecurityManager delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Traps exits of the coverage tool only, other threads of the build
+         * being checked by the previous security manager, if any.
+         */
+        @Override
+        public void checkExit(int status) {
+            if (Boolean.TRUE.equals(IN_RUN.get())) {
+                throw new ExitTrappedException(status);
+            }
+            if (delegate != null) {
+                delegate.checkExit(status);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm) {
+            if (delegate != null) {
+                delegate.checkPermission(perm);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+            if (delegate != null) {
+                delegate.checkPermission(perm, context);
+            }
+        }
+    }
+}
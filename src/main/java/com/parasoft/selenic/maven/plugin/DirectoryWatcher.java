@@ -0,0 +1,212 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches folders and files for changes with a {@link WatchService}. Folders
+ * are watched with all their subfolders, including the ones created later, and
+ * through their nearest existing ancestor, to be watched again when they are
+ * deleted and created again, for example by a clean build. A file, such as an
+ * application jar, is watched through its parent folder.
+ * Bursts of changes, such as a recompilation, are reported once after a quiet
+ * period.
+ */
+final class DirectoryWatcher implements Closeable {
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+
+    private final Set<Path> watchedTrees = new LinkedHashSet<>();
+
+    /**
+     * Files watched through their parent folder, by parent folder.
+     */
+    private final Map<Path, Set<Path>> watchedFiles = new HashMap<>();
+
+    /**
+     * Watched folders, by their nearest existing ancestor.
+     */
+    private final Map<Path, Set<Path>> watchedAncestors = new HashMap<>();
+
+    DirectoryWatcher(Collection<Path> paths) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            for (Path path : paths) {
+                Path absolutePath = path.toAbsolutePath().normalize();
+                if (Files.isDirectory(absolutePath)) {
+                    watchedTrees.add(absolutePath);
+                    watchTree(absolutePath);
+                } else if (absolutePath.getParent() != null && Files.isDirectory(absolutePath.getParent())) {
+                    watchedFiles.computeIfAbsent(absolutePath.getParent(), k -> new LinkedHashSet<>())
+                            .add(absolutePath);
+                    register(absolutePath.getParent());
+                }
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for changes, then until nothing changed for {@code quietMillis}.
+     *
+     * @param timeoutMillis the maximum time to wait for a first change, or 0 to
+     *                      wait until interrupted
+     * @return the changed paths, empty on timeout; the watched folder itself
+     *         when events were lost
+     */
+    Set<Path> awaitChanges(long quietMillis, long timeoutMillis) throws IOException, InterruptedException {
+        Set<Path> changes = new LinkedHashSet<>();
+        WatchKey key = timeoutMillis > 0 ? watchService.poll(timeoutMillis, TimeUnit.MILLISECONDS)
+                : watchService.take();
+        while (key != null) {
+            collect(key, changes);
+            if (changes.isEmpty()) {
+                // only changes of files next to the watched ones
+                key = timeoutMillis > 0 ? watchService.poll(timeoutMillis, TimeUnit.MILLISECONDS)
+                        : watchService.take();
+            } else {
+                key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return changes;
+    }
+
+    private void collect(WatchKey key, Set<Path> changes) throws IOException {
+        Path dir = watchedDirs.get(key);
+        Set<Path> ancestorOf = dir == null ? Collections.emptySet()
+                : watchedAncestors.getOrDefault(dir, Collections.emptySet());
+        Set<Path> recreatedTrees = new LinkedHashSet<>();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null) {
+                continue;
+            }
+            if (event.kind() == OVERFLOW) {
+                changes.add(dir);
+                recreatedTrees.addAll(ancestorOf);
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() != ENTRY_MODIFY) {
+                for (Path root : ancestorOf) {
+                    if (root.startsWith(path)) {
+                        recreatedTrees.add(root);
+                    }
+                }
+            }
+            if (isInWatchedTree(dir)) {
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                    registerTree(path);
+                }
+                changes.add(path);
+            } else if (watchedFiles.getOrDefault(dir, Collections.emptySet()).contains(path)) {
+                changes.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+            // the ancestor itself was deleted
+            recreatedTrees.addAll(ancestorOf);
+        }
+        for (Path root : recreatedTrees) {
+            watchTree(root);
+            changes.add(root);
+        }
+    }
+
+    /**
+     * Registers a watched folder with its subfolders if it exists, and its
+     * nearest existing ancestor.
+     */
+    private void watchTree(Path root) throws IOException {
+        for (Set<Path> roots : watchedAncestors.values()) {
+            roots.remove(root);
+        }
+        Path ancestor = root.getParent();
+        while (ancestor != null) {
+            if (!Files.isDirectory(ancestor)) {
+                ancestor = ancestor.getParent();
+                continue;
+            }
+            register(ancestor);
+            watchedAncestors.computeIfAbsent(ancestor, k -> new LinkedHashSet<>()).add(root);
+            Path child = ancestor.resolve(root.getName(ancestor.getNameCount()));
+            if (child.equals(root) || !Files.isDirectory(child)) {
+                break;
+            }
+            // created before the ancestor was registered, look for a nearer one
+            watchedAncestors.get(ancestor).remove(root);
+            ancestor = root.getParent();
+        }
+        if (Files.isDirectory(root)) {
+            registerTree(root);
+        }
+    }
+
+    private boolean isInWatchedTree(Path dir) {
+        for (Path root : watchedTrees) {
+            if (dir.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                register(dir);
+            }
+        }
+    }
+
+    /**
+     * Registers a folder, which returns the same key when it is already
+     * registered, or a new key when the folder was created again.
+     */
+    private void register(Path dir) throws IOException {
+        watchedDirs.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
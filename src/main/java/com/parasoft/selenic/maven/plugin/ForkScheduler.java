@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bounds the coverage tool processes that run at the same time in a build, by
+ * number and by memory, for parallel builds where many modules would
+ * otherwise start them at once. The plugin classes are shared by the modules of
+ * a build, so a single scheduler serves the whole build. Processes start in the
+ * order they were requested; a process that needs more than the whole memory
+ * budget starts when no other process runs.
+ */
+final class ForkScheduler {
+    /**
+     * Memory used by a JVM besides its heap, such as metaspace, code cache and
+     * thread stacks.
+     */
+    static final long NON_HEAP_BYTES = 256L << 20;
+
+    private static final ForkScheduler INSTANCE = new ForkScheduler();
+
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+
+    private int running;
+
+    private long reservedBytes;
+
+    ForkScheduler() {
+    }
+
+    static ForkScheduler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits until a process needing {@code bytes} of memory may start.
+     *
+     * @param maxProcesses the maximum number of processes running at the same
+     *                     time
+     * @param budgetBytes  the memory the processes running at the same time may
+     *                     use together
+     */
+    Lease acquire(long bytes, int maxProcesses, long budgetBytes) throws InterruptedException {
+        long start = System.nanoTime();
+        Object ticket = new Object();
+        boolean queued = false;
+        synchronized (this) {
+            queue.add(ticket);
+            try {
+                while (queue.peek() != ticket || !fits(bytes, maxProcesses, budgetBytes)) {
+                    queued = true;
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                queue.remove(ticket);
+                notifyAll();
+                throw e;
+            }
+            queue.remove();
+            running++;
+            reservedBytes += bytes;
+            // the next process may fit too
+            notifyAll();
+        }
+        return new Lease(bytes, queued ? (System.nanoTime() - start) / 1000000 : 0);
+    }
+
+    private boolean fits(long bytes, int maxProcesses, long budgetBytes) {
+        return running == 0 || running < maxProcesses && reservedBytes + bytes <= budgetBytes;
+    }
+
+    private synchronized void release(long bytes) {
+        running--;
+        reservedBytes -= bytes;
+        notifyAll();
+    }
+
+    synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the memory a JVM started with the given options may use: its
+     * maximum heap, by default a quarter of the physical memory, plus
+     * {@link #NON_HEAP_BYTES}.
+     */
+    static long getRequiredBytes(List<String> vmArgs) {
+        long heapBytes = -1;
+        if (vmArgs != null) {
+            for (String vmArg : vmArgs) {
+                String size = null;
+                if (vmArg.startsWith("-Xmx")) { //$NON-NLS-1$
+                    size = vmArg.substring(4);
+                } else if (vmArg.startsWith("-XX:MaxHeapSize=")) { //$NON-NLS-1$
+                    size = vmArg.substring(16);
+                }
+                if (size != null) {
+                    long parsed = parseSize(size);
+                    if (parsed > 0) {
+                        heapBytes = parsed;
+                    }
+                }
+            }
+        }
+        if (heapBytes < 0) {
+            heapBytes = getPhysicalMemory() / 4;
+        }
+        return heapBytes + NON_HEAP_BYTES;
+    }
+
+    /**
+     * Parses a JVM memory size such as {@code 512m} or {@code 2G}, or returns
+     * {@code -1} if invalid.
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        if (value.isEmpty()) {
+            return -1;
+        }
+        int shift = 0;
+        switch (value.charAt(value.length() - 1)) {
+        case 'k':
+            shift = 10;
+            break;
+        case 'm':
+            shift = 20;
+            break;
+        case 'g':
+            shift = 30;
+            break;
+        case 't':
+            shift = 40;
+            break;
+        default:
+            break;
+        }
+        try {
+            return Long.parseLong(shift == 0 ? value : value.substring(0, value.length() - 1)) << shift;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the physical memory of the machine, or 4 GB if unknown.
+     */
+    static long getPhysicalMemory() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            long bytes = getTotalMemorySize((com.sun.management.OperatingSystemMXBean) os);
+            if (bytes > 0) {
+                return bytes;
+            }
+        }
+        return 4L << 30;
+    }
+
+    /**
+     * Calls {@code getTotalMemorySize}, added in Java 14 to replace
+     * {@code getTotalPhysicalMemorySize}, reflectively since the plugin targets
+     * Java 8.
+     */
+    @SuppressWarnings("deprecation")
+    private static long getTotalMemorySize(com.sun.management.OperatingSystemMXBean os) {
+        try {
+            return (Long) com.sun.management.OperatingSystemMXBean.class.getMethod("getTotalMemorySize") //$NON-NLS-1$
+                    .invoke(os);
+        } catch (ReflectiveOperationException e) {
+            return os.getTotalPhysicalMemorySize();
+        }
+    }
+
+    /**
+     * Permission for a process to run, to close when it ends.
+     */
+    final class Lease implements AutoCloseable {
+        private final long bytes;
+
+        private final long waitMillis;
+
+        private boolean closed;
+
+        private Lease(long bytes, long waitMillis) {
+            this.bytes = bytes;
+            this.waitMillis = waitMillis;
+        }
+
+        /**
+         * Returns how long the process waited to start in milliseconds.
+         */
+        long getWaitMillis() {
+            return waitMillis;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(bytes);
+            }
+        }
+    }
+}
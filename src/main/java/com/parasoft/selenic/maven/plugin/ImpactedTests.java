@@ -0,0 +1,265 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.surefire.api.testset.TestListResolver;
+
+/**
+ * Reads the impacted tests found by the coverage tool and applies them to the
+ * test plugins of a project.
+ */
+final class ImpactedTests {
+
+    private ImpactedTests() {
+    }
+
+    static Path getListFile(Path covtoolWorkDir) {
+        return covtoolWorkDir.resolve(".coverage").resolve("lsts").resolve("impacted_tests.lst"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    /**
+     * Reads the impacted tests, without duplicates and blank lines.
+     */
+    static List<String> read(Path lstFile) throws MojoExecutionException {
+        if (!Files.exists(lstFile)) {
+            return Collections.emptyList();
+        }
+        Set<String> impactedTests = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(lstFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    impactedTests.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(Messages.get("unable.to.read.lst.file", lstFile), e); //$NON-NLS-1$
+        }
+        return new ArrayList<>(impactedTests);
+    }
+
+    /**
+     * Returns the fully qualified name of the test class of an impacted test,
+     * which may be given as a class name or a class file path, optionally
+     * followed by {@code #} and a method filter.
+     */
+    static String getTestClassName(String impactedTest) {
+        String className = impactedTest.trim();
+        int methodIndex = className.indexOf('#');
+        if (methodIndex >= 0) {
+            className = className.substring(0, methodIndex);
+        }
+        if (className.endsWith(".java") || className.endsWith(".class")) { //$NON-NLS-1$ //$NON-NLS-2$
+            className = className.substring(0, className.lastIndexOf('.'));
+        }
+        return className.replace('/', '.').replace('\\', '.');
+    }
+
+    /**
+     * Returns the minimal test patterns that select the impacted tests. Methods
+     * of the same class are combined as {@code com/foo/BarTest#baz+qux}, and a
+     * package whose compiled test classes are all impacted is selected as
+     * {@code com/foo/*}.
+     *
+     * @param testClassesDir the compiled test classes, or {@code null} if not
+     *                       available
+     */
+    static List<String> toPatterns(Collection<String> impactedTests, Path testClassesDir) {
+        // test classes in the form com/foo/BarTest to selected methods, or null for all methods
+        Map<String, Set<String>> selection = new TreeMap<>();
+        for (String impactedTest : impactedTests) {
+            String className = getTestClassName(impactedTest).replace('.', '/');
+            int methodIndex = impactedTest.indexOf('#');
+            String methods = methodIndex < 0 ? "" : impactedTest.substring(methodIndex + 1).trim(); //$NON-NLS-1$
+            if (methods.isEmpty()) {
+                selection.put(className, null);
+            } else if (!selection.containsKey(className) || selection.get(className) != null) {
+                selection.computeIfAbsent(className, k -> new TreeSet<>())
+                        .addAll(Arrays.asList(methods.split("\\+"))); //$NON-NLS-1$
+            }
+        }
+        List<String> patterns = new ArrayList<>();
+        Set<String> collapsedPackages = getCollapsedPackages(selection, testClassesDir);
+        for (String packageName : collapsedPackages) {
+            patterns.add(packageName + "/*"); //$NON-NLS-1$
+        }
+        for (Entry<String, Set<String>> entry : selection.entrySet()) {
+            String className = entry.getKey();
+            int packageEnd = className.lastIndexOf('/');
+            if (entry.getValue() == null) {
+                if (packageEnd < 0 || !collapsedPackages.contains(className.substring(0, packageEnd))) {
+                    patterns.add(className);
+                }
+            } else {
+                patterns.add(className + '#' + String.join("+", entry.getValue())); //$NON-NLS-1$
+            }
+        }
+        return patterns;
+    }
+
+    private static Set<String> getCollapsedPackages(Map<String, Set<String>> selection, Path testClassesDir) {
+        Set<String> collapsedPackages = new TreeSet<>();
+        if (testClassesDir == null || !Files.isDirectory(testClassesDir)) {
+            return collapsedPackages;
+        }
+        Set<String> packages = new TreeSet<>();
+        for (Entry<String, Set<String>> entry : selection.entrySet()) {
+            int packageEnd = entry.getKey().lastIndexOf('/');
+            if (entry.getValue() == null && packageEnd > 0) {
+                packages.add(entry.getKey().substring(0, packageEnd));
+            }
+        }
+        for (String packageName : packages) {
+            Path packageDir = testClassesDir.resolve(packageName);
+            if (!Files.isDirectory(packageDir)) {
+                continue;
+            }
+            try (Stream<Path> stream = Files.list(packageDir)) {
+                List<String> classNames = stream.map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(".class") && name.indexOf('$') < 0) //$NON-NLS-1$
+                        .map(name -> packageName + '/' + name.substring(0, name.length() - 6))
+                        .collect(Collectors.toList());
+                if (!classNames.isEmpty() && classNames.stream()
+                        .allMatch(className -> selection.containsKey(className) && selection.get(className) == null)) {
+                    collapsedPackages.add(packageName);
+                }
+            } catch (IOException e) {
+                // not collapsed
+            }
+        }
+        return collapsedPackages;
+    }
+
+    /**
+     * Applies the impacted tests to the surefire and failsafe plugins of a
+     * project, either with the {@code test} and {@code it.test} properties or
+     * with includes files. Each plugin gets the impacted tests matching its
+     * includes and excludes, see {@link TestPlugins}. The failsafe plugin is
+     * skipped with the {@code skipITs} property when no integration test is
+     * impacted.
+     *
+     * @param includesFile the includes file to write the unit test patterns to,
+     *                     the integration test patterns being written next to
+     *                     it, or {@code null} to use the properties
+     */
+    static void apply(Log log, MavenProject project, List<String> impactedTests, Path includesFile)
+            throws MojoExecutionException {
+        Properties prop = project.getProperties();
+        String testClassesDir = project.getBuild().getTestOutputDirectory();
+        Path testClassesPath = testClassesDir == null ? null : Paths.get(testClassesDir);
+        TestPlugins testPlugins = TestPlugins.split(project, impactedTests);
+        List<String> unitTestPatterns = toPatterns(testPlugins.getUnitTests(), testClassesPath);
+        apply(log, prop, "surefire", "test", unitTestPatterns, //$NON-NLS-1$ //$NON-NLS-2$
+                getIncludesFile(log, project, TestPlugins.SUREFIRE, "test", unitTestPatterns, includesFile)); //$NON-NLS-1$
+        List<String> integrationTestPatterns = toPatterns(testPlugins.getIntegrationTests(), testClassesPath);
+        apply(log, prop, "failsafe", "it.test", integrationTestPatterns, //$NON-NLS-1$ //$NON-NLS-2$
+                getIncludesFile(log, project, TestPlugins.FAILSAFE, "it.test", integrationTestPatterns, //$NON-NLS-1$
+                        includesFile == null ? null : getIntegrationTestIncludesFile(includesFile)));
+        if (integrationTestPatterns.isEmpty()) {
+            prop.setProperty("skipITs", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    /**
+     * Makes the surefire and failsafe plugins of a project run first the test
+     * classes that failed in their previous run, with their {@code failedfirst}
+     * run order, unless a run order is set with the {@code surefire.runOrder}
+     * or {@code failsafe.runOrder} property. These plugins cannot run test
+     * classes in a given order.
+     */
+    static void applyRunOrder(Log log, MavenProject project) {
+        Properties prop = project.getProperties();
+        for (String plugin : new String[] { "surefire", "failsafe" }) { //$NON-NLS-1$ //$NON-NLS-2$
+            String runOrderProperty = plugin + ".runOrder"; //$NON-NLS-1$
+            if (prop.getProperty(runOrderProperty) == null && System.getProperty(runOrderProperty) == null) {
+                log.debug("Running failed tests first with " + plugin); //$NON-NLS-1$
+                prop.setProperty(runOrderProperty, "failedfirst"); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Returns the includes file to use for a plugin, or {@code null} to use
+     * the test property when {@code includes} are configured for the plugin,
+     * since the plugin would add them to the patterns of the includes file and
+     * run all tests matching them.
+     */
+    private static Path getIncludesFile(Log log, MavenProject project, String pluginKey, String testProperty,
+            List<String> patterns, Path includesFile) {
+        if (includesFile != null && !patterns.isEmpty() && TestPlugins.hasConfiguredIncludes(project, pluginKey)) {
+            log.warn(Messages.get("includes.file.ignored", pluginKey, testProperty)); //$NON-NLS-1$
+            return null;
+        }
+        return includesFile;
+    }
+
+    /**
+     * Returns the includes file for the integration tests, next to the includes
+     * file for the unit tests.
+     */
+    static Path getIntegrationTestIncludesFile(Path includesFile) {
+        return includesFile.resolveSibling("it_" + includesFile.getFileName()); //$NON-NLS-1$
+    }
+
+    private static void apply(Log log, Properties prop, String plugin, String testProperty, List<String> patterns,
+            Path includesFile) throws MojoExecutionException {
+        if (patterns.isEmpty()) {
+            prop.setProperty(plugin + ".failIfNoSpecifiedTests", "false"); //$NON-NLS-1$ //$NON-NLS-2$
+            log.debug("No impacted tests to run with " + plugin); //$NON-NLS-1$
+            prop.setProperty(testProperty, "!**/*"); //$NON-NLS-1$
+        } else if (includesFile != null) {
+            try {
+                Files.createDirectories(includesFile.getParent());
+                Files.write(includesFile, patterns);
+            } catch (IOException e) {
+                throw new MojoExecutionException(e);
+            }
+            String includesFilePath = includesFile.toAbsolutePath().toString();
+            prop.setProperty(plugin + ".includesFile", includesFilePath); //$NON-NLS-1$
+            log.debug("Applying " + patterns.size() + " patterns of impacted tests to run with " + plugin //$NON-NLS-1$ //$NON-NLS-2$
+                    + " in: " + includesFilePath); //$NON-NLS-1$
+        } else {
+            String testsToRun = new TestListResolver(patterns).getPluginParameterTest();
+            log.debug("Applying impacted tests to run with " + plugin + ": " + testsToRun); //$NON-NLS-1$ //$NON-NLS-2$
+            prop.setProperty(testProperty, testsToRun);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Scans an application and analyzes a baseline coverage report once for the
+ * whole reactor, then executes in each module the unit tests impacted by code
+ * changes that belong to that module. Use it instead of the
+ * {@code impacted-tests} goal in the modules, either from the command line or
+ * bound in the parent of the modules. A bound execution is inherited by the
+ * modules unless it is declared with {@code <inherited>false</inherited>}, so
+ * the goal runs only for the top level project of the reactor, or for its
+ * first project when the top level project is not built, and is skipped in the
+ * others.
+ */
+@Mojo(name = "impacted-tests-aggregate", defaultPhase = LifecyclePhase.PROCESS_TEST_CLASSES, aggregator = true,
+        threadSafe = true)
+public class ImpactedTestsAggregateMojo extends ImpactedTestsMojo {
+
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    private MavenSession session;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        MavenProject analysisProject = getAnalysisProject(session);
+        if (analysisProject != project) {
+            getLog().info(Messages.get("aggregate.skipped", analysisProject.getId())); //$NON-NLS-1$
+            return;
+        }
+        super.execute();
+    }
+
+    /**
+     * Returns the project the analysis runs for: the top level project of the
+     * reactor, or its first project when the top level project is not built.
+     */
+    static MavenProject getAnalysisProject(MavenSession session) {
+        MavenProject topLevelProject = session.getTopLevelProject();
+        List<MavenProject> projects = session.getProjects();
+        return topLevelProject != null && projects.contains(topLevelProject) ? topLevelProject : projects.get(0);
+    }
+
+    @Override
+    protected void doOtherWork(Log log, Path covtoolWorkDir) throws MojoExecutionException {
+        Map<String, List<MavenProject>> testClassOwners;
+        try {
+            testClassOwners = getTestClassOwners(session.getProjects());
+        } catch (IOException e) {
+            throw new MojoExecutionException(e);
+        }
+        Map<MavenProject, List<String>> selectedTestsByProject = groupByOwner(log, session.getProjects(),
+                selectTests(log, readImpactedTests(covtoolWorkDir), covtoolWorkDir), testClassOwners);
+        long start = System.nanoTime();
+        for (Entry<MavenProject, List<String>> entry : selectedTestsByProject.entrySet()) {
+            log.debug("Module " + entry.getKey().getId() + ':'); //$NON-NLS-1$
+            applyTests(log, entry.getKey(), entry.getValue());
+        }
+        getMetrics().endPhase("applyTests", start); //$NON-NLS-1$
+        long analysisMillis = getElapsedMillis();
+        for (Entry<MavenProject, List<String>> entry : selectedTestsByProject.entrySet()) {
+            // the analysis is done once, for the project of this execution
+            writeSelection(log, entry.getKey(), entry.getValue(), entry.getKey() == project ? analysisMillis : 0);
+        }
+    }
+
+    /**
+     * Returns the projects that own each test class, from their test sources
+     * and compiled test classes.
+     */
+    static Map<String, List<MavenProject>> getTestClassOwners(List<MavenProject> projects) throws IOException {
+        Map<String, List<MavenProject>> testClassOwners = new HashMap<>();
+        for (MavenProject reactorProject : projects) {
+            for (String testClassName : getTestClassNames(reactorProject)) {
+                List<MavenProject> owners = testClassOwners.computeIfAbsent(testClassName, k -> new ArrayList<>(1));
+                if (!owners.contains(reactorProject)) {
+                    owners.add(reactorProject);
+                }
+            }
+        }
+        return testClassOwners;
+    }
+
+    /**
+     * Returns the impacted tests of each project, the projects that own their
+     * test classes. Impacted tests that no project owns, such as generated tests
+     * or patterns, are given to every project that has tests, so that they are
+     * not skipped.
+     */
+    static Map<MavenProject, List<String>> groupByOwner(Log log, List<MavenProject> projects,
+            List<String> impactedTests, Map<String, List<MavenProject>> testClassOwners) {
+        Map<MavenProject, List<String>> impactedTestsByProject = new LinkedHashMap<>();
+        for (MavenProject reactorProject : projects) {
+            impactedTestsByProject.put(reactorProject, new ArrayList<>());
+        }
+        Set<MavenProject> projectsWithTests = new LinkedHashSet<>();
+        for (List<MavenProject> owners : testClassOwners.values()) {
+            projectsWithTests.addAll(owners);
+        }
+        List<String> unownedTests = new ArrayList<>();
+        for (String impactedTest : impactedTests) {
+            List<MavenProject> owners = testClassOwners.get(ImpactedTests.getTestClassName(impactedTest));
+            if (owners == null) {
+                unownedTests.add(impactedTest);
+                owners = new ArrayList<>(projectsWithTests);
+            }
+            for (MavenProject owner : owners) {
+                impactedTestsByProject.get(owner).add(impactedTest);
+            }
+        }
+        if (!unownedTests.isEmpty()) {
+            log.warn(Messages.get("aggregate.unowned.tests", unownedTests.size(), String.join(", ", unownedTests))); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return impactedTestsByProject;
+    }
+
+    @Override
+    protected List<MavenProject> getTestProjects() {
+        return session.getProjects();
+    }
+
+    /**
+     * Returns the test classes of a project from its test sources, and from its
+     * compiled test classes when they already exist.
+     */
+    private static List<String> getTestClassNames(MavenProject project) throws IOException {
+        List<String> testClassNames = new ArrayList<>();
+        for (String testSourceRoot : project.getTestCompileSourceRoots()) {
+            addClassNames(Paths.get(testSourceRoot), testClassNames);
+        }
+        String testOutputDirectory = project.getBuild().getTestOutputDirectory();
+        if (testOutputDirectory != null) {
+            addClassNames(Paths.get(testOutputDirectory), testClassNames);
+        }
+        return testClassNames;
+    }
+
+    private static void addClassNames(Path root, List<String> classNames) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.filter(Files::isRegularFile).map(path -> root.relativize(path).toString()).filter(path -> {
+                String fileName = path.substring(path.lastIndexOf(File.separatorChar) + 1);
+                return fileName.indexOf('.') > 0 && fileName.indexOf('$') < 0;
+            }).map(path -> path.substring(0, path.lastIndexOf('.')).replace(File.separatorChar, '.'))
+                    .forEach(classNames::add);
+        }
+    }
+}
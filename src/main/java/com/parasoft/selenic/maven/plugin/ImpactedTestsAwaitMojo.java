@@ -0,0 +1,40 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Waits for the analysis started by the {@code impacted-tests-start} goal, then
+ * executes the unit tests impacted by code changes. Analyzes at once, like the
+ * {@code impacted-tests} goal, if no analysis was started for the project.
+ */
+@Mojo(name = "impacted-tests-await", defaultPhase = LifecyclePhase.PROCESS_TEST_CLASSES, threadSafe = true)
+public class ImpactedTestsAwaitMojo extends ImpactedTestsMojo {
+
+    @Override
+    protected void doExecute(File settingsFile) throws MojoExecutionException {
+        if (!awaitAnalysis()) {
+            getLog().info(Messages.get("analysis.not.started")); //$NON-NLS-1$
+            super.doExecute(settingsFile);
+        }
+    }
+}
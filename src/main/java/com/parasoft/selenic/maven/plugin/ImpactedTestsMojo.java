@@ -20,16 +20,17 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.surefire.api.testset.TestListResolver;
+import org.apache.maven.project.MavenProject;
 
 /**
  * Scans an application and analyzes a baseline coverage report to execute unit
@@ -39,49 +40,333 @@ import org.apache.maven.surefire.api.testset.TestListResolver;
 public class ImpactedTestsMojo extends AbstractCoverageMojo {
 
     /**
-     * Specifies the XML coverage report to use as the baseline.
+     * Specifies the XML coverage report to use as the baseline. A report
+     * compressed with gzip, named {@code *.gz}, is decompressed into
+     * {@code baselineCacheDirectory}.
      */
     @Parameter(property = "selenic.coverage.baseline", required = true)
     private File baseline;
 
+    /**
+     * Specifies the folder where compressed baselines are decompressed, under
+     * the hash of their content, so that the same baseline is decompressed only
+     * once.
+     */
+    @Parameter(property = "selenic.coverage.baselineCacheDirectory", defaultValue = "${user.home}/.selenic/baselines")
+    private File baselineCacheDirectory;
+
+    /**
+     * Passes the impacted tests to the surefire and failsafe plugins in
+     * includes files, set with the {@code surefire.includesFile} and
+     * {@code failsafe.includesFile} properties, instead of the {@code test} and
+     * {@code it.test} properties. Recommended for thousands of impacted tests,
+     * which may exceed the command line length limits of forked test JVMs.
+     * The properties are still used for a plugin with configured
+     * {@code includes}, which the plugin would add to the includes file.
+     */
+    @Parameter(property = "selenic.coverage.useIncludesFile", defaultValue = "false")
+    private boolean useIncludesFile; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the number of shards to split the impacted tests into, for
+     * example the number of CI nodes that run tests in parallel. Test classes are
+     * assigned to shards so that the shards take about the same time, based on
+     * the durations in {@code testDurations}. Every node computes the same
+     * shards.
+     */
+    @Parameter(property = "selenic.shardCount", defaultValue = "1")
+    private int shardCount; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the zero-based index of the shard of impacted tests to execute.
+     */
+    @Parameter(property = "selenic.shardIndex", defaultValue = "0")
+    private int shardIndex; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies a properties file with the durations, in seconds, of test
+     * classes, for example {@code com.foo.BarTest=12.5}. Shards are computed
+     * from this file only, so that nodes with different local test reports
+     * compute the same shards; share the same file with all nodes. For
+     * prioritization, durations found in the surefire and failsafe reports of
+     * the project replace those in this file.
+     */
+    @Parameter(property = "selenic.testDurations")
+    private File testDurations;
+
+    /**
+     * Orders the impacted test classes by how likely they are to fail: the
+     * classes covering the most code elements changed since the latest full
+     * scan of {@code incrementalScan}, according to {@code baselineIndex}, then
+     * the classes that failed in their latest run, then the shortest classes.
+     * The changed code elements are not the changes since the baseline, and
+     * they are unknown without an incremental scan, for example in the first
+     * build of a fresh CI workspace; the classes are then ordered by their
+     * failures and durations only. The order is
+     * written to {@code target/covtool/prioritized_tests.lst} and decides which
+     * classes fit in {@code fastFeedbackBudget}. The surefire and failsafe
+     * plugins cannot run classes in a given order, so they are set to run first
+     * the classes that failed in their previous run, with their
+     * {@code failedfirst} run order, unless a {@code runOrder} is configured.
+     */
+    @Parameter(property = "selenic.prioritize", defaultValue = "false")
+    private boolean prioritize; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies the index file compiled from a coverage map with the
+     * {@code baseline-index} goal, used to prioritize the tests covering
+     * code elements changed since the latest full scan. Changed code elements
+     * are known after incremental scans only.
+     */
+    @Parameter(property = "selenic.coverage.baselineIndex", defaultValue = "${project.build.directory}/selenic/baseline.idx")
+    private File baselineIndex;
+
+    /**
+     * Specifies a time budget, in seconds, for a fast feedback run. When
+     * greater than 0, only the highest priority impacted test classes that fit
+     * in the budget, according to the durations of earlier runs, are executed.
+     * Implies {@code prioritize}.
+     */
+    @Parameter(property = "selenic.fastFeedbackBudget", defaultValue = "0")
+    private int fastFeedbackBudget; // parasoft-suppress OPT.CTLV "injected"
+
+    private File decompressedBaseline;
+
     ImpactedTestsMojo() {
         super("impacted"); //$NON-NLS-1$
     }
 
     @Override
     protected void addAdditionalArguments(List<String> command) throws MojoExecutionException {
+        checkBaseline();
+        addCommand("-baseline", getDecompressedBaseline(), command); //$NON-NLS-1$
+    }
+
+    @Override
+    protected void addAdditionalInputs(InputFingerprint fingerprint) throws MojoExecutionException, IOException {
+        checkBaseline();
+        fingerprint.add("baseline", baseline); //$NON-NLS-1$
+    }
+
+    @Override
+    protected boolean isRecordedAgainst(Path archive) throws MojoExecutionException, IOException {
+        checkBaseline();
+        return CompressedBaseline.contains(baseline.toPath(), archive.getFileName().toString());
+    }
+
+    private void checkBaseline() throws MojoExecutionException {
         if (!baseline.exists()) {
             throw new MojoExecutionException(Messages.get("baseline.missing", baseline)); //$NON-NLS-1$
         }
-        addCommand("-baseline", baseline, command); //$NON-NLS-1$
+        try {
+            CompressedBaseline.check(baseline.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        if (CoverageMerger.isCoverageMap(baseline.toPath())) {
+            throw new MojoExecutionException(Messages.get("baseline.coverage.map", baseline)); //$NON-NLS-1$
+        }
     }
 
-    @Override
-    protected void doOtherWork(Log log, Path covtoolWorkDir) throws MojoExecutionException {
-        Path lstFile = covtoolWorkDir.resolve(".coverage").resolve("lsts").resolve("impacted_tests.lst"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-        List<String> impactedTests;
-        if (Files.exists(lstFile)) {
+    /**
+     * Returns the baseline, decompressed once per execution if it is
+     * compressed.
+     */
+    private synchronized File getDecompressedBaseline() throws MojoExecutionException {
+        if (decompressedBaseline == null) {
+            if (!CompressedBaseline.isCompressed(baseline.toPath())) {
+                decompressedBaseline = baseline;
+                return baseline;
+            }
+            CompressedBaseline decompressed;
             try {
-                impactedTests = Files.readAllLines(lstFile);
+                decompressed = CompressedBaseline.decompress(baseline.toPath(), baselineCacheDirectory.toPath());
             } catch (IOException e) {
-                throw new MojoExecutionException(Messages.get("unable.to.read.lst.file", lstFile), e); //$NON-NLS-1$
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+            long savedBytes = decompressed.getBytes() - decompressed.getCompressedBytes();
+            if (decompressed.isCached()) {
+                getLog().info(Messages.get("baseline.decompressed.cached", baseline, decompressed.getFile(), //$NON-NLS-1$
+                        savedBytes));
+            } else {
+                getLog().info(Messages.get("baseline.decompressed", baseline, decompressed.getFile(), //$NON-NLS-1$
+                        decompressed.getMillis(), savedBytes));
+            }
+            RunMetrics metrics = getMetrics();
+            metrics.set("baselineCompressedBytes", decompressed.getCompressedBytes()); //$NON-NLS-1$
+            metrics.set("baselineBytes", decompressed.getBytes()); //$NON-NLS-1$
+            metrics.set("baselineCacheHit", decompressed.isCached()); //$NON-NLS-1$
+            metrics.set("baselineDecompressMillis", decompressed.getMillis()); //$NON-NLS-1$
+            decompressedBaseline = decompressed.getFile().toFile();
+        }
+        return decompressedBaseline;
+    }
+
+    @Override
+    protected void doOtherWork(Log log, Path covtoolWorkDir) throws MojoExecutionException {
+        List<String> selectedTests = selectTests(log, readImpactedTests(covtoolWorkDir), covtoolWorkDir);
+        long start = System.nanoTime();
+        applyTests(log, project, selectedTests);
+        getMetrics().endPhase("applyTests", start); //$NON-NLS-1$
+        writeSelection(log, project, selectedTests, getElapsedMillis());
+    }
+
+    /**
+     * Applies the selected tests to the test plugins of a project, with the
+     * run order of prioritized tests.
+     */
+    protected void applyTests(Log log, MavenProject testProject, List<String> selectedTests)
+            throws MojoExecutionException {
+        ImpactedTests.apply(log, testProject, selectedTests, getIncludesFile(testProject));
+        if (prioritize || fastFeedbackBudget > 0) {
+            ImpactedTests.applyRunOrder(log, testProject);
+        }
+    }
+
+    /**
+     * Records the tests applied to a project, after sharding and the fast
+     * feedback cut, and the time spent on finding them for the
+     * {@code test-savings-report} goal.
+     */
+    protected void writeSelection(Log log, MavenProject testProject, List<String> selectedTests,
+            long analysisMillis) throws MojoExecutionException {
+        Path selectionFile = TestSavings.getSelectionFile(testProject);
+        try {
+            TestSavings.writeSelection(selectionFile, selectedTests, analysisMillis);
+        } catch (IOException e) {
+            log.debug(e);
+            throw new MojoExecutionException(e);
+        }
+        log.debug("Test selection written to: " + selectionFile); //$NON-NLS-1$
+    }
+
+    /**
+     * Reads the impacted tests found by the coverage tool.
+     */
+    protected List<String> readImpactedTests(Path covtoolWorkDir) throws MojoExecutionException {
+        long start = System.nanoTime();
+        Path listFile = ImpactedTests.getListFile(covtoolWorkDir);
+        List<String> impactedTests = ImpactedTests.read(listFile);
+        RunMetrics metrics = getMetrics();
+        metrics.endPhase("readList", start); //$NON-NLS-1$
+        metrics.set("listFileBytes", listFile.toFile().length()); //$NON-NLS-1$
+        metrics.set("testsTotal", impactedTests.size()); //$NON-NLS-1$
+        return impactedTests;
+    }
+
+    /**
+     * Returns the impacted tests to execute in this build, that is the shard
+     * selected by {@code shardIndex} when {@code shardCount} is greater than 1,
+     * ordered by priority and cut to {@code fastFeedbackBudget} when enabled.
+     */
+    protected List<String> selectTests(Log log, List<String> impactedTests, Path covtoolWorkDir)
+            throws MojoExecutionException {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new MojoExecutionException(Messages.get("shard.invalid", shardIndex, shardCount)); //$NON-NLS-1$
+        }
+        boolean prioritizeTests = prioritize || fastFeedbackBudget > 0;
+        if (shardCount == 1 && !prioritizeTests) {
+            getMetrics().set("testsSelected", impactedTests.size()); //$NON-NLS-1$
+            return impactedTests;
+        }
+        long start = System.nanoTime();
+        List<String> selectedTests = impactedTests;
+        if (shardCount > 1) {
+            // local reports differ between nodes and would give different shards
+            TestShards shards = TestShards.compute(impactedTests, readTestHistory(false), shardCount);
+            selectedTests = shards.select(impactedTests, shardIndex);
+            log.info(Messages.get("shard.selected", shardIndex, shardCount, selectedTests.size(), //$NON-NLS-1$
+                    impactedTests.size(), Math.round(shards.getDuration(shardIndex))));
+        }
+        if (prioritizeTests) {
+            selectedTests = prioritizeTests(log, selectedTests, readTestHistory(true), covtoolWorkDir);
+        }
+        RunMetrics metrics = getMetrics();
+        metrics.endPhase("selectTests", start); //$NON-NLS-1$
+        metrics.set("testsSelected", selectedTests.size()); //$NON-NLS-1$
+        return selectedTests;
+    }
+
+    private List<String> prioritizeTests(Log log, List<String> impactedTests, TestHistory history,
+            Path covtoolWorkDir) throws MojoExecutionException {
+        TestPriorities priorities = TestPriorities.compute(impactedTests, readChangedCoverage(log, covtoolWorkDir),
+                history);
+        List<String> classNames = priorities.getClassNames();
+        try {
+            Files.write(covtoolWorkDir.resolve("prioritized_tests.lst"), classNames); //$NON-NLS-1$
+        } catch (IOException e) {
+            throw new MojoExecutionException(e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Prioritized test classes:" + System.lineSeparator() //$NON-NLS-1$
+                    + String.join(System.lineSeparator(), classNames));
+        }
+        int classCount = classNames.size();
+        if (fastFeedbackBudget > 0 && classCount > 0) {
+            classCount = priorities.countWithinBudget(fastFeedbackBudget);
+            log.info(Messages.get("fast.feedback.selected", classCount, classNames.size(), //$NON-NLS-1$
+                    Math.round(priorities.getDuration(classCount)), fastFeedbackBudget));
+        }
+        return priorities.select(impactedTests, classCount);
+    }
+
+    /**
+     * Returns, by test name, how many of the code elements changed since the
+     * latest full scan each test covers. Empty when the changes or the baseline
+     * index are unknown.
+     */
+    private Map<String, Integer> readChangedCoverage(Log log, Path covtoolWorkDir) throws MojoExecutionException {
+        Path changedElementsFile = getChangedElementsFile(covtoolWorkDir);
+        if (!Files.isRegularFile(changedElementsFile)) {
+            log.info(Messages.get("prioritize.changes.unknown")); //$NON-NLS-1$
+            return Collections.emptyMap();
+        }
+        if (baselineIndex == null || !baselineIndex.isFile()) {
+            log.info(Messages.get("prioritize.index.missing", baselineIndex)); //$NON-NLS-1$
+            return Collections.emptyMap();
+        }
+        try (BaselineIndex index = BaselineIndex.open(baselineIndex.toPath())) {
+            return index.countCoveredElements(Files.readAllLines(changedElementsFile));
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the durations of earlier test runs of the projects whose tests are
+     * selected by this goal, from {@code testDurations} and optionally from the
+     * local surefire and failsafe reports of the projects.
+     */
+    protected TestHistory readTestHistory(boolean includeLocalReports) throws MojoExecutionException {
+        TestHistory history = new TestHistory();
+        try {
+            history.readDurationsFile(testDurations == null ? null : testDurations.toPath());
+            if (includeLocalReports) {
+                for (MavenProject testProject : getTestProjects()) {
+                    Path buildDir = Paths.get(testProject.getBuild().getDirectory());
+                    history.readReports(buildDir.resolve("surefire-reports")); //$NON-NLS-1$
+                    history.readReports(buildDir.resolve("failsafe-reports")); //$NON-NLS-1$
+                }
             }
-        } else {
-            impactedTests = Collections.emptyList();
-        }
-        Properties prop = project.getProperties();
-        String testsToRun;
-        if (impactedTests.isEmpty()) {
-            testsToRun = "!**/*"; //$NON-NLS-1$
-            prop.setProperty("surefire.failIfNoSpecifiedTests", "false"); //$NON-NLS-1$ //$NON-NLS-2$
-            prop.setProperty("failsafe.failIfNoSpecifiedTests", "false"); //$NON-NLS-1$ //$NON-NLS-2$
-            log.debug("No impacted tests to run"); //$NON-NLS-1$
-        } else {
-            TestListResolver testListResolver = new TestListResolver(impactedTests);
-            testsToRun = testListResolver.getPluginParameterTest();
-            log.debug("Applying impacted tests to run: " + testsToRun); //$NON-NLS-1$
-        }
-        prop.setProperty("test", testsToRun); //$NON-NLS-1$
-        prop.setProperty("it.test", testsToRun); //$NON-NLS-1$
+        } catch (IOException e) {
+            throw new MojoExecutionException(e);
+        }
+        return history;
+    }
+
+    /**
+     * Returns the projects whose tests are selected by this goal.
+     */
+    protected List<MavenProject> getTestProjects() {
+        return Collections.singletonList(project);
+    }
+
+    /**
+     * Returns the includes file for the impacted tests of a project, or
+     * {@code null} if {@code useIncludesFile} is not enabled.
+     */
+    protected Path getIncludesFile(MavenProject testProject) {
+        return useIncludesFile ? Paths.get(testProject.getBuild().getDirectory(), "selenic", "impacted_tests.includes") //$NON-NLS-1$ //$NON-NLS-2$
+                : null;
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Starts scanning an application and analyzing a baseline coverage report in
+ * the background, so that the analysis runs while the test classes compile.
+ * Bind it to the phase where the application binaries are ready, then bind the
+ * {@code impacted-tests-await} goal, with the same configuration, to the phase
+ * where the impacted tests must be known.
+ */
+@Mojo(name = "impacted-tests-start", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
+public class ImpactedTestsStartMojo extends ImpactedTestsMojo {
+
+    @Override
+    protected void doExecute(File settingsFile) {
+        startAnalysis(settingsFile);
+        getLog().info(Messages.get("analysis.started")); //$NON-NLS-1$
+    }
+}
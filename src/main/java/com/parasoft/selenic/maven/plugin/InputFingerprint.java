@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content hash of the inputs of a coverage tool run. Files are hashed by
+ * content and relative path only, so the same inputs give the same fingerprint
+ * regardless of where they are located.
+ */
+final class InputFingerprint {
+    private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+    private final MessageDigest digest;
+
+    private final byte[] buffer = new byte[64 * 1024];
+
+    InputFingerprint() {
+        digest = newDigest();
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns a content hash of the given file.
+     */
+    static String hash(Path file) throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint();
+        fingerprint.update(file);
+        return toHex(fingerprint.digest.digest());
+    }
+
+    InputFingerprint add(String name, String value) {
+        update(name);
+        update(value == null ? "" : value); //$NON-NLS-1$
+        return this;
+    }
+
+    InputFingerprint add(String name, boolean value) {
+        return add(name, Boolean.toString(value));
+    }
+
+    InputFingerprint add(String name, Collection<String> values) {
+        update(name);
+        if (values != null) {
+            for (String value : values) {
+                update(value);
+            }
+        }
+        return this;
+    }
+
+    InputFingerprint add(String name, Map<String, String> values) {
+        update(name);
+        if (values != null) {
+            for (Entry<String, String> entry : new TreeMap<>(values).entrySet()) {
+                update(entry.getKey());
+                update(entry.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds the content of a file, or of all files in a folder, to the
+     * fingerprint. A missing file is recorded as such.
+     */
+    InputFingerprint add(String name, File file) throws IOException {
+        update(name);
+        if (file == null || !file.exists()) {
+            update("<none>"); //$NON-NLS-1$
+        } else if (file.isDirectory()) {
+            Path root = file.toPath();
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(root)) {
+                files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path path : files) {
+                update(root.relativize(path).toString().replace(File.separatorChar, '/'));
+                update(path);
+            }
+        } else {
+            update(file.toPath());
+        }
+        return this;
+    }
+
+    String get() {
+        return toHex(digest.digest());
+    }
+
+    private void update(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        updateLength(bytes.length);
+        digest.update(bytes);
+    }
+
+    private void update(Path file) throws IOException {
+        updateLength(Files.size(file));
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private void updateLength(long length) {
+        for (int i = 56; i >= 0; i -= 8) {
+            digest.update((byte) (length >>> i));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Samples the CPU time and the peak resident set size of a child process from
+ * {@code /proc} while it runs. The last sample is taken at most
+ * {@link #INTERVAL_MILLIS} before the process exits, so the CPU time may be
+ * slightly low. Nothing is measured where {@code /proc} is not available.
+ */
+final class ProcessStats {
+    static final long INTERVAL_MILLIS = 50;
+
+    /** Clock ticks per second of {@code /proc/<pid>/stat}, 100 on Linux. */
+    private static final long CLOCK_TICKS = 100;
+
+    private final Path procDir;
+
+    private final Thread sampler;
+
+    private volatile long cpuMillis = -1;
+
+    private volatile long peakRssKb = -1;
+
+    private ProcessStats(Path procDir, Process process) {
+        this.procDir = procDir;
+        sampler = new Thread(() -> {
+            while (process.isAlive() && sample()) {
+                try {
+                    Thread.sleep(INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "selenic-process-stats"); //$NON-NLS-1$
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Starts sampling a process, or returns {@code null} if its statistics are
+     * not available.
+     */
+    static ProcessStats watch(Process process) {
+        long pid = getPid(process);
+        if (pid <= 0) {
+            return null;
+        }
+        Path procDir = Paths.get("/proc", Long.toString(pid)); //$NON-NLS-1$
+        if (!Files.isDirectory(procDir)) {
+            return null;
+        }
+        return new ProcessStats(procDir, process);
+    }
+
+    /**
+     * Waits for the sampling to end after the process exited.
+     */
+    void stop() throws InterruptedException {
+        sampler.interrupt();
+        sampler.join();
+    }
+
+    /**
+     * Returns the user and system CPU time of the process in milliseconds, or
+     * {@code -1} if unknown.
+     */
+    long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    /**
+     * Returns the peak resident set size of the process in kilobytes, or
+     * {@code -1} if unknown.
+     */
+    long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    private boolean sample() {
+        try {
+            String stat = new String(Files.readAllBytes(procDir.resolve("stat")), US_ASCII); //$NON-NLS-1$
+            // fields after the parenthesized command name, which may contain spaces
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" "); //$NON-NLS-1$
+            // utime and stime are the 14th and 15th fields, the 12th and 13th after the state
+            cpuMillis = (Long.parseLong(fields[11]) + Long.parseLong(fields[12])) * 1000 / CLOCK_TICKS;
+            List<String> status = Files.readAllLines(procDir.resolve("status"), US_ASCII); //$NON-NLS-1$
+            for (String line : status) {
+                if (line.startsWith("VmHWM:")) { //$NON-NLS-1$
+                    peakRssKb = Long.parseLong(line.substring(6).replace("kB", "").trim()); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // the process exited
+            return false;
+        }
+    }
+
+    private static long getPid(Process process) {
+        try {
+            // Java 9 and later
+            return (Long) Process.class.getMethod("pid").invoke(process); //$NON-NLS-1$
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8 on Unix
+            try {
+                Field pid = process.getClass().getDeclaredField("pid"); //$NON-NLS-1$
+                pid.setAccessible(true);
+                return pid.getInt(process);
+            } catch (ReflectiveOperationException | RuntimeException e2) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A cache of impacted test lists shared by builds that analyze the same
+ * application against the same baseline, possibly in other worktrees or on
+ * other machines through a shared folder. Entries are keyed by the fingerprint
+ * of the coverage tool inputs, which depends on their content and not on their
+ * paths, and written atomically. The least recently used entries are removed
+ * when the cache exceeds its maximum size. Hits and misses are counted in
+ * {@code stats.properties}.
+ */
+final class ResultCache {
+    static final String STATS_FILE = "stats.properties"; //$NON-NLS-1$
+
+    static final String HITS = "hits"; //$NON-NLS-1$
+
+    static final String MISSES = "misses"; //$NON-NLS-1$
+
+    private static final String LIST_EXTENSION = ".lst"; //$NON-NLS-1$
+
+    private static final String METADATA_EXTENSION = ".properties"; //$NON-NLS-1$
+
+    private final Path dir;
+
+    private final long maxBytes;
+
+    ResultCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Copies the cached impacted test list of a key to the list file.
+     *
+     * @return whether the key was found
+     */
+    boolean restore(String key, Path listFile) throws IOException {
+        Path entry = dir.resolve(key + LIST_EXTENSION);
+        try {
+            Files.createDirectories(listFile.getParent());
+            Files.copy(entry, listFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        // marks the entry as recently used
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * Stores the impacted test list of a key with its metadata, then removes
+     * the least recently used entries beyond the maximum size.
+     *
+     * @param listFile the list file, or a missing file for no impacted tests
+     */
+    void store(String key, Path listFile, Properties metadata) throws IOException {
+        Files.createDirectories(dir);
+        Path metadataTemp = Files.createTempFile(dir, key, ".tmp"); //$NON-NLS-1$
+        Path listTemp = Files.createTempFile(dir, key, ".tmp"); //$NON-NLS-1$
+        try {
+            try (OutputStream out = Files.newOutputStream(metadataTemp)) {
+                metadata.store(out, null);
+            }
+            if (Files.exists(listFile)) {
+                Files.copy(listFile, listTemp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // the list last, as its presence makes the entry visible
+            Files.move(metadataTemp, dir.resolve(key + METADATA_EXTENSION), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            Files.move(listTemp, dir.resolve(key + LIST_EXTENSION), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(metadataTemp);
+            Files.deleteIfExists(listTemp);
+        }
+        evict();
+    }
+
+    private void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(dir)) {
+            entries = stream.filter(file -> file.getFileName().toString().endsWith(LIST_EXTENSION))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        long totalBytes = 0;
+        List<Long> sizes = new ArrayList<>(entries.size());
+        for (Path entry : entries) {
+            long size = getSize(entry) + getSize(getMetadataFile(entry));
+            sizes.add(size);
+            totalBytes += size;
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        List<Integer> order = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingLong(i -> getLastModifiedMillis(entries.get(i))));
+        for (int i : order) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            Path entry = entries.get(i);
+            Files.deleteIfExists(entry);
+            Files.deleteIfExists(getMetadataFile(entry));
+            totalBytes -= sizes.get(i);
+        }
+    }
+
+    private static Path getMetadataFile(Path entry) {
+        String fileName = entry.getFileName().toString();
+        return entry.resolveSibling(
+                fileName.substring(0, fileName.length() - LIST_EXTENSION.length()) + METADATA_EXTENSION);
+    }
+
+    private static long getSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long getLastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Counts a hit or a miss in the statistics of the cache, under a file lock
+     * since several builds may share the cache.
+     *
+     * @return the statistics including this lookup
+     */
+    Properties count(boolean hit) throws IOException {
+        Files.createDirectories(dir);
+        Properties stats = new Properties();
+        try (FileChannel channel = FileChannel.open(dir.resolve(STATS_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+            InputStream in = Channels.newInputStream(channel);
+            stats.load(in);
+            String name = hit ? HITS : MISSES;
+            stats.setProperty(name, Long.toString(getCount(stats, name) + 1));
+            channel.truncate(0);
+            channel.position(0);
+            OutputStream out = Channels.newOutputStream(channel);
+            stats.store(out, null);
+            out.flush();
+        }
+        return stats;
+    }
+
+    static long getCount(Properties stats, String name) {
+        try {
+            return Long.parseLong(stats.getProperty(name, "0")); //$NON-NLS-1$
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
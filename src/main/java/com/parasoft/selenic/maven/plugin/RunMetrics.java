@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+/**
+ * Durations of the phases of a goal execution, in milliseconds, and metrics
+ * such as the resources used by the coverage tool processes and the numbers of
+ * scanned classes and selected tests. Written as a JSON file for build time
+ * dashboards. Thread-safe for partitioned scans.
+ */
+final class RunMetrics {
+    static final String FILE_NAME = "selenic-metrics.json"; //$NON-NLS-1$
+
+    private static final String PROPERTY_PREFIX = "selenic.metrics."; //$NON-NLS-1$
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    /**
+     * Adds the time elapsed since {@code startNanos}, a value of
+     * {@link System#nanoTime()}, to a phase.
+     */
+    synchronized void endPhase(String phase, long startNanos) {
+        phases.merge(phase, (System.nanoTime() - startNanos) / 1000000, Long::sum);
+    }
+
+    /**
+     * Sets a metric to a number, a string or a boolean.
+     */
+    synchronized void set(String name, Object value) {
+        values.put(name, value);
+    }
+
+    /**
+     * Adds to a metric, for example the CPU time of several processes.
+     */
+    synchronized void add(String name, long value) {
+        values.merge(name, value, (a, b) -> (Long) a + (Long) b);
+    }
+
+    /**
+     * Raises a metric to a value, for example the peak memory of several
+     * processes.
+     */
+    synchronized void max(String name, long value) {
+        values.merge(name, value, (a, b) -> Math.max((Long) a, (Long) b));
+    }
+
+    /**
+     * Removes all phases and metrics, before a new run of a repeating goal.
+     */
+    synchronized void clear() {
+        phases.clear();
+        values.clear();
+    }
+
+    synchronized Long getPhase(String phase) {
+        return phases.get(phase);
+    }
+
+    synchronized Object get(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * Writes the metrics atomically as a JSON object with the phase durations in
+     * a {@code phases} object.
+     */
+    synchronized void write(Path file) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"phases\": {"); //$NON-NLS-1$
+        String separator = "\n    "; //$NON-NLS-1$
+        for (Entry<String, Long> phase : phases.entrySet()) {
+            json.append(separator).append(quote(phase.getKey())).append(": ").append(phase.getValue()); //$NON-NLS-1$
+            separator = ",\n    "; //$NON-NLS-1$
+        }
+        json.append(phases.isEmpty() ? "}" : "\n  }"); //$NON-NLS-1$ //$NON-NLS-2$
+        for (Entry<String, Object> value : values.entrySet()) {
+            json.append(",\n  ").append(quote(value.getKey())).append(": "); //$NON-NLS-1$ //$NON-NLS-2$
+            Object object = value.getValue();
+            json.append(object instanceof Number || object instanceof Boolean ? object.toString()
+                    : quote(String.valueOf(object)));
+        }
+        json.append("\n}\n"); //$NON-NLS-1$
+        Files.createDirectories(file.getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp"); //$NON-NLS-1$
+        Files.write(tempFile, json.toString().getBytes(UTF_8));
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Sets the metrics as properties named {@code selenic.metrics.<name>} and
+     * {@code selenic.metrics.phases.<phase>}.
+     */
+    synchronized void exportTo(Properties properties) {
+        for (Entry<String, Long> phase : phases.entrySet()) {
+            properties.setProperty(PROPERTY_PREFIX + "phases." + phase.getKey(), phase.getValue().toString()); //$NON-NLS-1$
+        }
+        for (Entry<String, Object> value : values.entrySet()) {
+            properties.setProperty(PROPERTY_PREFIX + value.getKey(), String.valueOf(value.getValue()));
+        }
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Splits the classes of an application into partitions of about the same
+ * number of classes, each given as include patterns for the coverage tool.
+ * Packages are kept whole and assigned from the largest to the smallest, each
+ * to the partition with the fewest classes so far. A package is included with
+ * a {@code com/foo/*} pattern, or class by class when the {@code includes} and
+ * {@code excludes} parameters select only some of its classes.
+ * <p>
+ * The partitions cover only the classes the application has now. Classes and
+ * packages deleted since the baseline are scanned by a remainder partition,
+ * which keeps the {@code includes} and excludes everything assigned to the
+ * other partitions.
+ */
+final class ScanPartitions {
+    private final List<List<String>> includes;
+
+    private final List<String> remainderExcludes;
+
+    private final int classCount;
+
+    private ScanPartitions(List<List<String>> includes, List<String> remainderExcludes, int classCount) {
+        this.includes = includes;
+        this.remainderExcludes = remainderExcludes;
+        this.classCount = classCount;
+    }
+
+    static ScanPartitions compute(File app, List<String> includes, List<String> excludes, int partitionCount)
+            throws IOException {
+        AntPatterns patterns = new AntPatterns(includes, excludes);
+        // package names to the selected classes and whether all classes are selected
+        Map<String, Set<String>> selectedClasses = new TreeMap<>();
+        Map<String, Boolean> wholePackages = new TreeMap<>();
+        ApplicationClasses.visit(app, (location, bytes) -> {
+            String className = new ClassReader(bytes).getClassName();
+            int lastSlash = className.lastIndexOf('/');
+            String packageName = lastSlash < 0 ? "" : className.substring(0, lastSlash); //$NON-NLS-1$
+            Set<String> classes = selectedClasses.computeIfAbsent(packageName, k -> new TreeSet<>());
+            boolean selected = patterns.matches(className);
+            if (selected) {
+                classes.add(className);
+            }
+            wholePackages.merge(packageName, selected, Boolean::logicalAnd);
+        });
+        selectedClasses.values().removeIf(Collection::isEmpty);
+        List<String> packageNames = new ArrayList<>(selectedClasses.keySet());
+        packageNames.sort((a, b) -> {
+            int result = Integer.compare(selectedClasses.get(b).size(), selectedClasses.get(a).size());
+            return result != 0 ? result : a.compareTo(b);
+        });
+        int count = Math.max(1, Math.min(partitionCount, packageNames.size()));
+        List<List<String>> partitionIncludes = new ArrayList<>(count);
+        int[] partitionSizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            partitionIncludes.add(new ArrayList<>());
+        }
+        int classCount = 0;
+        for (String packageName : packageNames) {
+            int partition = 0;
+            for (int i = 1; i < count; i++) {
+                if (partitionSizes[i] < partitionSizes[partition]) {
+                    partition = i;
+                }
+            }
+            Set<String> classes = selectedClasses.get(packageName);
+            partitionSizes[partition] += classes.size();
+            classCount += classes.size();
+            if (wholePackages.get(packageName)) {
+                partitionIncludes.get(partition).add(packageName.isEmpty() ? "*" : packageName + "/*"); //$NON-NLS-1$ //$NON-NLS-2$
+            } else {
+                partitionIncludes.get(partition).addAll(classes);
+            }
+        }
+        partitionIncludes.removeIf(List::isEmpty);
+        List<String> remainderExcludes = new ArrayList<>();
+        if (excludes != null) {
+            remainderExcludes.addAll(excludes);
+        }
+        partitionIncludes.forEach(remainderExcludes::addAll);
+        return new ScanPartitions(partitionIncludes, remainderExcludes, classCount);
+    }
+
+    /**
+     * Returns the include patterns of each partition.
+     */
+    List<List<String>> getIncludes() {
+        return includes;
+    }
+
+    /**
+     * Returns the exclude patterns of the remainder partition, the
+     * {@code excludes} parameter followed by the include patterns of every
+     * partition.
+     */
+    List<String> getRemainderExcludes() {
+        return remainderExcludes;
+    }
+
+    /**
+     * Returns the number of selected classes.
+     */
+    int getClassCount() {
+        return classCount;
+    }
+}
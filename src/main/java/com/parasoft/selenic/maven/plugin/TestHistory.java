@@ -0,0 +1,183 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Durations and failures of test classes from earlier test runs, read from
+ * surefire and failsafe XML reports or from a durations file.
+ */
+final class TestHistory {
+    /** Test class names to durations in seconds. */
+    private final Map<String, Double> durations = new HashMap<>();
+
+    /** Test class names to numbers of failed or erroneous test cases. */
+    private final Map<String, Integer> failures = new HashMap<>();
+
+    /**
+     * Reads a durations file, a properties file with test class names as keys
+     * and durations in seconds as values. Missing files are ignored.
+     */
+    void readDurationsFile(Path file) throws IOException {
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        for (String className : properties.stringPropertyNames()) {
+            try {
+                durations.put(className, Double.parseDouble(properties.getProperty(className)));
+            } catch (NumberFormatException e) {
+                // ignored
+            }
+        }
+    }
+
+    /**
+     * Reads the {@code TEST-*.xml} reports of a surefire or failsafe reports
+     * folder. Durations found there replace those read before. Missing folders
+     * are ignored.
+     */
+    void readReports(Path reportsDir) throws IOException {
+        if (reportsDir == null || !Files.isDirectory(reportsDir)) {
+            return;
+        }
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(reportsDir, "TEST-*.xml")) { //$NON-NLS-1$
+            for (Path report : reports) {
+                Map<String, Double> reportDurations = new HashMap<>();
+                Map<String, Integer> reportFailures = new HashMap<>();
+                try (InputStream in = Files.newInputStream(report)) {
+                    XMLStreamReader reader = factory.createXMLStreamReader(in);
+                    try {
+                        String className = null;
+                        while (reader.hasNext()) {
+                            if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                                continue;
+                            }
+                            String localName = reader.getLocalName();
+                            if ("testcase".equals(localName)) { //$NON-NLS-1$
+                                className = reader.getAttributeValue(null, "classname"); //$NON-NLS-1$
+                                double time = parseTime(reader.getAttributeValue(null, "time")); //$NON-NLS-1$
+                                if (className != null) {
+                                    reportDurations.merge(className, time, Double::sum);
+                                }
+                            } else if (className != null
+                                    && ("failure".equals(localName) || "error".equals(localName))) { //$NON-NLS-1$ //$NON-NLS-2$
+                                reportFailures.merge(className, 1, Integer::sum);
+                            }
+                        }
+                    } finally {
+                        reader.close();
+                    }
+                } catch (XMLStreamException e) {
+                    // incomplete report of an interrupted run
+                    continue;
+                }
+                durations.putAll(reportDurations);
+                for (String className : reportDurations.keySet()) {
+                    failures.put(className, reportFailures.getOrDefault(className, 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the known durations of some test classes atomically as a durations
+     * file, sorted by class name.
+     */
+    void writeDurationsFile(Path file, Collection<String> classNames) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String className : new TreeSet<>(classNames)) {
+            Double duration = durations.get(className);
+            if (duration != null) {
+                text.append(className).append('=').append(duration).append('\n');
+            }
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp"); //$NON-NLS-1$
+        Files.write(tempFile, text.toString().getBytes(UTF_8));
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static double parseTime(String time) {
+        if (time == null) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(time.replace(",", "")); //$NON-NLS-1$ //$NON-NLS-2$
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the duration of a test class in seconds, or {@code null} if not
+     * known.
+     */
+    Double getDuration(String className) {
+        return durations.get(className);
+    }
+
+    /**
+     * Returns the number of test cases of a test class that failed in the
+     * latest report of the class.
+     */
+    int getFailures(String className) {
+        return failures.getOrDefault(className, 0);
+    }
+
+    /**
+     * Returns the mean duration of the known test classes, or {@code 1} second
+     * if none is known.
+     */
+    double getMeanDuration() {
+        if (durations.isEmpty()) {
+            return 1;
+        }
+        double total = 0;
+        for (Entry<String, Double> entry : durations.entrySet()) {
+            total += entry.getValue();
+        }
+        return total / durations.size();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.surefire.api.testset.TestListResolver;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Splits impacted tests into unit tests, run by the surefire plugin, and
+ * integration tests, run by the failsafe plugin, with the {@code includes} and
+ * {@code excludes} configured for these plugins in a project or their
+ * defaults.
+ */
+final class TestPlugins {
+    static final String SUREFIRE = "org.apache.maven.plugins:maven-surefire-plugin"; //$NON-NLS-1$
+
+    static final String FAILSAFE = "org.apache.maven.plugins:maven-failsafe-plugin"; //$NON-NLS-1$
+
+    static final List<String> SUREFIRE_INCLUDES = Collections.unmodifiableList(Arrays.asList("**/Test*.java", //$NON-NLS-1$
+            "**/*Test.java", "**/*Tests.java", "**/*TestCase.java")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+    static final List<String> FAILSAFE_INCLUDES = Collections.unmodifiableList(Arrays.asList("**/IT*.java", //$NON-NLS-1$
+            "**/*IT.java", "**/*ITCase.java")); //$NON-NLS-1$ //$NON-NLS-2$
+
+    static final List<String> DEFAULT_EXCLUDES = Collections.singletonList("**/*$*"); //$NON-NLS-1$
+
+    private final List<String> unitTests = new ArrayList<>();
+
+    private final List<String> integrationTests = new ArrayList<>();
+
+    private TestPlugins() {
+    }
+
+    /**
+     * Splits impacted tests. A test matched by both plugins is given to both,
+     * and a test matched by neither is given to the surefire plugin.
+     */
+    static TestPlugins split(MavenProject project, Collection<String> impactedTests) {
+        TestListResolver surefire = getResolver(project, SUREFIRE, SUREFIRE_INCLUDES);
+        TestListResolver failsafe = getResolver(project, FAILSAFE, FAILSAFE_INCLUDES);
+        TestPlugins testPlugins = new TestPlugins();
+        for (String impactedTest : impactedTests) {
+            String classFile = TestListResolver.toClassFileName(ImpactedTests.getTestClassName(impactedTest));
+            boolean integrationTest = failsafe.shouldRun(classFile, null);
+            if (integrationTest) {
+                testPlugins.integrationTests.add(impactedTest);
+            }
+            if (!integrationTest || surefire.shouldRun(classFile, null)) {
+                testPlugins.unitTests.add(impactedTest);
+            }
+        }
+        return testPlugins;
+    }
+
+    /**
+     * Returns the test classes of a project that the surefire or failsafe
+     * plugin runs, found in its compiled test classes.
+     */
+    static List<String> listTests(MavenProject project) throws IOException {
+        List<String> tests = new ArrayList<>();
+        String testOutputDirectory = project.getBuild().getTestOutputDirectory();
+        if (testOutputDirectory == null || !Files.isDirectory(Paths.get(testOutputDirectory))) {
+            return tests;
+        }
+        TestListResolver surefire = getResolver(project, SUREFIRE, SUREFIRE_INCLUDES);
+        TestListResolver failsafe = getResolver(project, FAILSAFE, FAILSAFE_INCLUDES);
+        Path root = Paths.get(testOutputDirectory);
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.filter(Files::isRegularFile)
+                    .map(path -> root.relativize(path).toString().replace(File.separatorChar, '/'))
+                    .filter(path -> path.endsWith(".class") && path.indexOf('$') < 0) //$NON-NLS-1$
+                    .filter(path -> surefire.shouldRun(path, null) || failsafe.shouldRun(path, null))
+                    .map(path -> path.substring(0, path.length() - ".class".length()).replace('/', '.')) //$NON-NLS-1$
+                    .sorted().forEach(tests::add);
+        }
+        return tests;
+    }
+
+    /**
+     * Returns whether {@code includes} are configured for a plugin of a
+     * project.
+     */
+    static boolean hasConfiguredIncludes(MavenProject project, String pluginKey) {
+        List<String> includes = new ArrayList<>();
+        addConfiguredPatterns(project, pluginKey, includes, new ArrayList<>());
+        return !includes.isEmpty();
+    }
+
+    private static TestListResolver getResolver(MavenProject project, String pluginKey, List<String> defaultIncludes) {
+        List<String> includes = new ArrayList<>();
+        List<String> excludes = new ArrayList<>();
+        addConfiguredPatterns(project, pluginKey, includes, excludes);
+        return new TestListResolver(includes.isEmpty() ? defaultIncludes : includes,
+                excludes.isEmpty() ? DEFAULT_EXCLUDES : excludes);
+    }
+
+    private static void addConfiguredPatterns(MavenProject project, String pluginKey, List<String> includes,
+            List<String> excludes) {
+        Plugin plugin = project.getBuild() == null ? null : project.getBuild().getPluginsAsMap().get(pluginKey);
+        if (plugin != null) {
+            addPatterns(plugin.getConfiguration(), includes, excludes);
+            for (PluginExecution execution : plugin.getExecutions()) {
+                addPatterns(execution.getConfiguration(), includes, excludes);
+            }
+        }
+    }
+
+    private static void addPatterns(Object configuration, List<String> includes, List<String> excludes) {
+        if (configuration instanceof Xpp3Dom) {
+            addChildValues(((Xpp3Dom) configuration).getChild("includes"), includes); //$NON-NLS-1$
+            addChildValues(((Xpp3Dom) configuration).getChild("excludes"), excludes); //$NON-NLS-1$
+        }
+    }
+
+    private static void addChildValues(Xpp3Dom parent, List<String> values) {
+        if (parent != null) {
+            for (Xpp3Dom child : parent.getChildren()) {
+                String value = child.getValue();
+                if (value != null && !value.trim().isEmpty()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the impacted tests to run with the surefire plugin.
+     */
+    List<String> getUnitTests() {
+        return unitTests;
+    }
+
+    /**
+     * Returns the impacted tests to run with the failsafe plugin.
+     */
+    List<String> getIntegrationTests() {
+        return integrationTests;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Orders impacted test classes so that the ones most likely to fail run first:
+ * the classes covering the most changed code elements first, then the classes
+ * that failed most in their latest run, then the shortest classes. Ties are
+ * broken by class name, so every node computes the same order.
+ */
+final class TestPriorities {
+    private final List<String> classNames;
+
+    private final double[] classDurations;
+
+    private TestPriorities(List<String> classNames, double[] classDurations) {
+        this.classNames = classNames;
+        this.classDurations = classDurations;
+    }
+
+    /**
+     * @param changedCoverage numbers of changed code elements covered by test
+     *                        name, where test names are either test classes or
+     *                        test methods
+     */
+    static TestPriorities compute(List<String> impactedTests, Map<String, Integer> changedCoverage,
+            TestHistory history) {
+        Map<String, Integer> classCoverage = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : changedCoverage.entrySet()) {
+            classCoverage.merge(ImpactedTests.getTestClassName(entry.getKey()), entry.getValue(), Integer::sum);
+        }
+        Set<String> uniqueClassNames = new LinkedHashSet<>();
+        for (String impactedTest : impactedTests) {
+            uniqueClassNames.add(ImpactedTests.getTestClassName(impactedTest));
+        }
+        double meanDuration = history.getMeanDuration();
+        Map<String, Double> durations = new HashMap<>();
+        for (String className : uniqueClassNames) {
+            Double duration = history.getDuration(className);
+            durations.put(className, duration == null ? meanDuration : duration);
+        }
+        List<String> classNames = new ArrayList<>(uniqueClassNames);
+        Collections.sort(classNames, (a, b) -> {
+            int result = Integer.compare(classCoverage.getOrDefault(b, 0), classCoverage.getOrDefault(a, 0));
+            if (result == 0) {
+                result = Integer.compare(history.getFailures(b), history.getFailures(a));
+            }
+            if (result == 0) {
+                result = Double.compare(durations.get(a), durations.get(b));
+            }
+            return result != 0 ? result : a.compareTo(b);
+        });
+        double[] classDurations = new double[classNames.size()];
+        for (int i = 0; i < classDurations.length; i++) {
+            classDurations[i] = durations.get(classNames.get(i));
+        }
+        return new TestPriorities(classNames, classDurations);
+    }
+
+    /**
+     * Returns the test classes from the highest to the lowest priority.
+     */
+    List<String> getClassNames() {
+        return classNames;
+    }
+
+    /**
+     * Returns how many of the highest priority test classes fit in a time
+     * budget, at least one.
+     *
+     * @param budget the budget in seconds
+     */
+    int countWithinBudget(double budget) {
+        double total = 0;
+        int count = 0;
+        while (count < classDurations.length && (count == 0 || total + classDurations[count] <= budget)) {
+            total += classDurations[count++];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the estimated duration of the given number of highest priority
+     * test classes in seconds.
+     */
+    double getDuration(int classCount) {
+        double total = 0;
+        for (int i = 0; i < classCount; i++) {
+            total += classDurations[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the impacted tests of the given number of highest priority test
+     * classes, ordered by priority.
+     */
+    List<String> select(List<String> impactedTests, int classCount) {
+        Map<String, List<String>> testsByClass = new HashMap<>();
+        for (String impactedTest : impactedTests) {
+            testsByClass.computeIfAbsent(ImpactedTests.getTestClassName(impactedTest), k -> new ArrayList<>(1))
+                    .add(impactedTest);
+        }
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            selected.addAll(testsByClass.get(classNames.get(i)));
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The test time saved by running only impacted tests in one build: the test
+ * classes selected by impact analysis compared to the full test suite, the
+ * time of the selected classes, the estimated time of the skipped classes,
+ * based on the durations of earlier runs, and the time spent on the analysis.
+ * Builds are appended to a trend history CSV file.
+ */
+final class TestSavings {
+    static final String SELECTION_FILE = "test-selection.properties"; //$NON-NLS-1$
+
+    private static final String CREATED = "created"; //$NON-NLS-1$
+
+    private static final String ANALYSIS_MILLIS = "analysisMillis"; //$NON-NLS-1$
+
+    private static final String TESTS = "tests"; //$NON-NLS-1$
+
+    private static final String TREND_HEADER = "created,selectedTests,totalTests,selectedSeconds,skippedSeconds,analysisSeconds"; //$NON-NLS-1$
+
+    private final String created;
+
+    private final int selectedTests;
+
+    private final int totalTests;
+
+    private final double selectedSeconds;
+
+    private final double skippedSeconds;
+
+    private final double analysisSeconds;
+
+    private final Set<String> testClasses;
+
+    private TestSavings(String created, int selectedTests, int totalTests, double selectedSeconds,
+            double skippedSeconds, double analysisSeconds, Set<String> testClasses) {
+        this.created = created;
+        this.selectedTests = selectedTests;
+        this.totalTests = totalTests;
+        this.selectedSeconds = selectedSeconds;
+        this.skippedSeconds = skippedSeconds;
+        this.analysisSeconds = analysisSeconds;
+        this.testClasses = testClasses;
+    }
+
+    /**
+     * Returns the file where the {@code impacted-tests} goals record the tests
+     * selected for a project.
+     */
+    static Path getSelectionFile(MavenProject project) {
+        return Paths.get(project.getBuild().getDirectory(), "selenic", SELECTION_FILE); //$NON-NLS-1$
+    }
+
+    /**
+     * Records the tests applied to a project, which are the impacted tests of
+     * its shard within the fast feedback budget, and the time spent on finding
+     * them.
+     */
+    static void writeSelection(Path selectionFile, Collection<String> selectedTests, long analysisMillis)
+            throws IOException {
+        Set<String> classNames = new TreeSet<>();
+        for (String selectedTest : selectedTests) {
+            classNames.add(ImpactedTests.getTestClassName(selectedTest));
+        }
+        Properties selection = new Properties();
+        selection.setProperty(CREATED, Instant.now().toString());
+        selection.setProperty(ANALYSIS_MILLIS, Long.toString(analysisMillis));
+        selection.setProperty(TESTS, String.join(",", classNames)); //$NON-NLS-1$
+        Files.createDirectories(selectionFile.getParent());
+        Path tempFile = selectionFile.resolveSibling(selectionFile.getFileName() + ".tmp"); //$NON-NLS-1$
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            selection.store(out, null);
+        }
+        Files.move(tempFile, selectionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Computes the savings of the selection recorded in a selection file.
+     *
+     * @param testSuite the test classes of the full test suite
+     * @param history   the durations of the test classes, from this build for
+     *                  the selected classes and from earlier builds for the
+     *                  skipped ones; the mean duration is used for unknown
+     *                  classes
+     */
+    static TestSavings compute(Path selectionFile, Collection<String> testSuite, TestHistory history)
+            throws IOException {
+        Properties selection = new Properties();
+        try (InputStream in = Files.newInputStream(selectionFile)) {
+            selection.load(in);
+        }
+        Set<String> selectedClasses = new TreeSet<>();
+        for (String className : selection.getProperty(TESTS, "").split(",")) { //$NON-NLS-1$ //$NON-NLS-2$
+            if (!className.trim().isEmpty()) {
+                selectedClasses.add(className.trim());
+            }
+        }
+        // selected tests not matched by the test plugin patterns still run
+        Set<String> testClasses = new TreeSet<>(testSuite);
+        testClasses.addAll(selectedClasses);
+        double meanDuration = history.getMeanDuration();
+        double selectedSeconds = 0;
+        double skippedSeconds = 0;
+        for (String className : testClasses) {
+            Double duration = history.getDuration(className);
+            double seconds = duration == null ? meanDuration : duration;
+            if (selectedClasses.contains(className)) {
+                selectedSeconds += seconds;
+            } else {
+                skippedSeconds += seconds;
+            }
+        }
+        long analysisMillis;
+        try {
+            analysisMillis = Long.parseLong(selection.getProperty(ANALYSIS_MILLIS, "0")); //$NON-NLS-1$
+        } catch (NumberFormatException e) {
+            analysisMillis = 0;
+        }
+        return new TestSavings(selection.getProperty(CREATED, ""), selectedClasses.size(), testClasses.size(), //$NON-NLS-1$
+                selectedSeconds, skippedSeconds, analysisMillis / 1000.0, testClasses);
+    }
+
+    /**
+     * Appends these savings to a trend history file, unless they are already
+     * its last entry, as when the report is generated again for the same
+     * build.
+     *
+     * @return whether the savings were appended
+     */
+    boolean appendTo(Path trendFile) throws IOException {
+        List<String> lines = Files.exists(trendFile) ? Files.readAllLines(trendFile, UTF_8)
+                : Collections.emptyList();
+        if (!lines.isEmpty() && lines.get(lines.size() - 1).startsWith(created + ',')) {
+            return false;
+        }
+        StringBuilder text = new StringBuilder();
+        if (lines.isEmpty()) {
+            text.append(TREND_HEADER).append('\n');
+        }
+        text.append(created).append(',').append(selectedTests).append(',').append(totalTests).append(',')
+                .append(format(selectedSeconds)).append(',').append(format(skippedSeconds)).append(',')
+                .append(format(analysisSeconds)).append('\n');
+        if (trendFile.getParent() != null) {
+            Files.createDirectories(trendFile.getParent());
+        }
+        Files.write(trendFile, text.toString().getBytes(UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        return true;
+    }
+
+    /**
+     * Reads the latest entries of a trend history file, oldest first. Missing
+     * files and malformed lines are ignored.
+     */
+    static List<TestSavings> readTrend(Path trendFile, int maxEntries) throws IOException {
+        List<TestSavings> trend = new ArrayList<>();
+        if (!Files.isRegularFile(trendFile)) {
+            return trend;
+        }
+        for (String line : Files.readAllLines(trendFile, UTF_8)) {
+            String[] values = line.split(","); //$NON-NLS-1$
+            if (values.length != 6) {
+                continue;
+            }
+            try {
+                trend.add(new TestSavings(values[0], Integer.parseInt(values[1]), Integer.parseInt(values[2]),
+                        Double.parseDouble(values[3]), Double.parseDouble(values[4]), Double.parseDouble(values[5]),
+                        Collections.emptySet()));
+            } catch (NumberFormatException e) {
+                // header or malformed line
+            }
+        }
+        return trend.size() > maxEntries ? trend.subList(trend.size() - maxEntries, trend.size()) : trend;
+    }
+
+    static String format(double seconds) {
+        return String.format(Locale.ROOT, "%.1f", seconds); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns when the tests were selected, as an ISO-8601 instant.
+     */
+    String getCreated() {
+        return created;
+    }
+
+    int getSelectedTests() {
+        return selectedTests;
+    }
+
+    int getTotalTests() {
+        return totalTests;
+    }
+
+    double getSelectedSeconds() {
+        return selectedSeconds;
+    }
+
+    double getSkippedSeconds() {
+        return skippedSeconds;
+    }
+
+    double getAnalysisSeconds() {
+        return analysisSeconds;
+    }
+
+    /**
+     * Returns the estimated test time skipped minus the analysis time, negative
+     * when the analysis costs more than it saves.
+     */
+    double getNetSeconds() {
+        return skippedSeconds - analysisSeconds;
+    }
+
+    /**
+     * Returns the test classes of the full test suite and the selected ones,
+     * empty for entries read from a trend history file.
+     */
+    Set<String> getTestClasses() {
+        return testClasses;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.reporting.AbstractMavenReport;
+import org.apache.maven.reporting.MavenReportException;
+
+/**
+ * Reports the test time saved by executing only impacted tests, after the
+ * tests of a build ran or as a page of the project site. Compares the test
+ * classes selected by the {@code impacted-tests} goals with the full test
+ * suite, estimates the time of the skipped classes from the durations of
+ * earlier runs, and shows the time spent on the analysis. The durations found
+ * in the surefire and failsafe reports are added to {@code durationHistory},
+ * and every build is appended to {@code trendHistory}. With the
+ * {@code impacted-tests-aggregate} goal, the analysis time is reported for the
+ * project where the goal is executed.
+ */
+@Mojo(name = "test-savings-report", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class TestSavingsReportMojo extends AbstractMavenReport {
+
+    /**
+     * Specifies a properties file with the durations, in seconds, of the test
+     * classes of the project, updated with the durations of every run. It can
+     * also be used as the {@code testDurations} of the {@code impacted-tests}
+     * goal.
+     */
+    @Parameter(property = "selenic.savings.durationHistory", defaultValue = "${project.basedir}/.selenic/test-durations.properties")
+    private File durationHistory;
+
+    /**
+     * Specifies a CSV file where the savings of every build are appended.
+     */
+    @Parameter(property = "selenic.savings.trendHistory", defaultValue = "${project.basedir}/.selenic/test-savings.csv")
+    private File trendHistory;
+
+    /**
+     * Specifies the number of latest builds shown in the trend of the report.
+     */
+    @Parameter(property = "selenic.savings.trendSize", defaultValue = "30")
+    private int trendSize; // parasoft-suppress OPT.CTLV "injected"
+
+    @Override
+    public String getOutputName() {
+        return "selenic-test-savings"; //$NON-NLS-1$
+    }
+
+    @Override
+    public String getName(Locale locale) {
+        return Messages.get("savings.report.name"); //$NON-NLS-1$
+    }
+
+    @Override
+    public String getDescription(Locale locale) {
+        return Messages.get("savings.report.description"); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns whether the {@code impacted-tests} goals selected tests for the
+     * project in this build.
+     */
+    @Override
+    public boolean canGenerateReport() {
+        boolean selected = Files.isRegularFile(TestSavings.getSelectionFile(project));
+        if (!selected) {
+            getLog().debug("No test selection found: " + TestSavings.getSelectionFile(project)); //$NON-NLS-1$
+        }
+        return selected;
+    }
+
+    @Override
+    protected void executeReport(Locale locale) throws MavenReportException {
+        Log log = getLog();
+        TestSavings savings;
+        List<TestSavings> trend;
+        try {
+            TestHistory history = new TestHistory();
+            history.readDurationsFile(durationHistory.toPath());
+            Path buildDir = Paths.get(project.getBuild().getDirectory());
+            history.readReports(buildDir.resolve("surefire-reports")); //$NON-NLS-1$
+            history.readReports(buildDir.resolve("failsafe-reports")); //$NON-NLS-1$
+            savings = TestSavings.compute(TestSavings.getSelectionFile(project), TestPlugins.listTests(project),
+                    history);
+            history.writeDurationsFile(durationHistory.toPath(), savings.getTestClasses());
+            if (savings.appendTo(trendHistory.toPath())) {
+                log.debug("Test savings appended to: " + trendHistory); //$NON-NLS-1$
+            }
+            trend = TestSavings.readTrend(trendHistory.toPath(), Math.max(1, trendSize));
+        } catch (IOException e) {
+            throw new MavenReportException(e.getMessage(), e);
+        }
+        log.info(Messages.get("savings.summary", savings.getSelectedTests(), savings.getTotalTests(), //$NON-NLS-1$
+                Math.round(savings.getSkippedSeconds()), Math.round(savings.getAnalysisSeconds())));
+        if (savings.getNetSeconds() < 0) {
+            log.warn(Messages.get("savings.negative", Math.round(-savings.getNetSeconds()))); //$NON-NLS-1$
+        }
+        render(getSink(), savings, trend);
+    }
+
+    private void render(Sink sink, TestSavings savings, List<TestSavings> trend) {
+        sink.head();
+        sink.title();
+        sink.text(Messages.get("savings.report.name")); //$NON-NLS-1$
+        sink.title_();
+        sink.head_();
+        sink.body();
+        sink.section1();
+        sink.sectionTitle1();
+        sink.text(Messages.get("savings.report.name")); //$NON-NLS-1$
+        sink.sectionTitle1_();
+        sink.paragraph();
+        sink.text(Messages.get("savings.report.description")); //$NON-NLS-1$
+        sink.paragraph_();
+        renderTable(sink, Collections.singletonList(savings));
+        if (savings.getNetSeconds() < 0) {
+            sink.paragraph();
+            sink.text(Messages.get("savings.negative", Math.round(-savings.getNetSeconds()))); //$NON-NLS-1$
+            sink.paragraph_();
+        }
+        sink.section2();
+        sink.sectionTitle2();
+        sink.text(Messages.get("savings.report.trend")); //$NON-NLS-1$
+        sink.sectionTitle2_();
+        renderTable(sink, trend);
+        sink.section2_();
+        sink.section1_();
+        sink.body_();
+        sink.flush();
+        sink.close();
+    }
+
+    private static void renderTable(Sink sink, List<TestSavings> rows) {
+        sink.table();
+        sink.tableRows(null, false);
+        sink.tableRow();
+        for (String key : new String[] { "savings.report.created", "savings.report.selected.tests", //$NON-NLS-1$ //$NON-NLS-2$
+                "savings.report.total.tests", "savings.report.selected.time", "savings.report.skipped.time", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                "savings.report.analysis.time", "savings.report.net.time" }) { //$NON-NLS-1$ //$NON-NLS-2$
+            sink.tableHeaderCell();
+            sink.text(Messages.get(key));
+            sink.tableHeaderCell_();
+        }
+        sink.tableRow_();
+        for (TestSavings row : rows) {
+            sink.tableRow();
+            for (String value : new String[] { row.getCreated(), Integer.toString(row.getSelectedTests()),
+                    Integer.toString(row.getTotalTests()), TestSavings.format(row.getSelectedSeconds()),
+                    TestSavings.format(row.getSkippedSeconds()), TestSavings.format(row.getAnalysisSeconds()),
+                    TestSavings.format(row.getNetSeconds()) }) {
+                sink.tableCell();
+                sink.text(value);
+                sink.tableCell_();
+            }
+            sink.tableRow_();
+        }
+        sink.tableRows_();
+        sink.table_();
+    }
+}
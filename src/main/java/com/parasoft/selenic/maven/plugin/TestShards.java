@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits impacted tests into shards of balanced duration with the longest
+ * processing time first rule: test classes are assigned from the longest to the
+ * shortest, each to the shard with the smallest total duration so far. Ties are
+ * broken by class name and shard index, so every node computes the same
+ * shards.
+ */
+final class TestShards {
+    private final int[] shardOfClass;
+
+    private final List<String> classNames;
+
+    private final double[] shardDurations;
+
+    private TestShards(List<String> classNames, int[] shardOfClass, double[] shardDurations) {
+        this.classNames = classNames;
+        this.shardOfClass = shardOfClass;
+        this.shardDurations = shardDurations;
+    }
+
+    static TestShards compute(List<String> impactedTests, TestHistory history, int shardCount) {
+        Set<String> uniqueClassNames = new LinkedHashSet<>();
+        for (String impactedTest : impactedTests) {
+            uniqueClassNames.add(ImpactedTests.getTestClassName(impactedTest));
+        }
+        List<String> classNames = new ArrayList<>(uniqueClassNames);
+        double meanDuration = history.getMeanDuration();
+        double[] classDurations = new double[classNames.size()];
+        Integer[] order = new Integer[classNames.size()];
+        for (int i = 0; i < order.length; i++) {
+            Double duration = history.getDuration(classNames.get(i));
+            classDurations[i] = duration == null ? meanDuration : duration;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int result = Double.compare(classDurations[b], classDurations[a]);
+            return result != 0 ? result : classNames.get(a).compareTo(classNames.get(b));
+        });
+        int[] shardOfClass = new int[classNames.size()];
+        double[] shardDurations = new double[shardCount];
+        for (int classIndex : order) {
+            int shard = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardDurations[i] < shardDurations[shard]) {
+                    shard = i;
+                }
+            }
+            shardOfClass[classIndex] = shard;
+            shardDurations[shard] += classDurations[classIndex];
+        }
+        return new TestShards(classNames, shardOfClass, shardDurations);
+    }
+
+    /**
+     * Returns the impacted tests of a shard in their original order.
+     */
+    List<String> select(List<String> impactedTests, int shardIndex) {
+        Map<String, Integer> shards = new HashMap<>();
+        for (int i = 0; i < classNames.size(); i++) {
+            shards.put(classNames.get(i), shardOfClass[i]);
+        }
+        List<String> selected = new ArrayList<>();
+        for (String impactedTest : impactedTests) {
+            if (shards.get(ImpactedTests.getTestClassName(impactedTest)) == shardIndex) {
+                selected.add(impactedTest);
+            }
+        }
+        return selected;
+    }
+
+    double getDuration(int shardIndex) {
+        return shardDurations[shardIndex];
+    }
+}
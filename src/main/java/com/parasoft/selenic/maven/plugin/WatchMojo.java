@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+
+/**
+ * Watches the compiled classes of the project and the application binaries,
+ * and finds the unit tests impacted by code changes every time they change,
+ * until stopped. The coverage tool stays loaded between runs and scans only
+ * the changed classes, see {@code incrementalScan} and {@code daemon}.
+ * Optionally runs the impacted tests after each change.
+ */
+@Mojo(name = "watch", threadSafe = true)
+public class WatchMojo extends ImpactedTestsMojo {
+
+    /**
+     * Specifies the time, in milliseconds, without further changes after which
+     * a burst of changes, such as a recompilation, is considered complete.
+     */
+    @Parameter(property = "selenic.watch.quietPeriod", defaultValue = "500")
+    private int quietPeriod; // parasoft-suppress OPT.CTLV "injected"
+
+    /**
+     * Specifies a command that runs the impacted unit tests after each change,
+     * for example {@code mvn -o surefire:test}. The impacted unit tests are
+     * appended in a {@code -Dtest} argument. The command runs in the project folder.
+     * Arguments with spaces are quoted with double or single quotes. The command
+     * is started without a shell, so on Windows scripts are given with their
+     * extension, for example {@code mvn.cmd -o surefire:test}.
+     */
+    @Parameter(property = "selenic.watch.testCommand")
+    private String testCommand;
+
+    private List<String> testCommandLine;
+
+    private long changeNanos;
+
+    @Override
+    protected void doExecute(File settingsFile) throws MojoExecutionException {
+        Log log = getLog();
+        testCommandLine = parseCommand(testCommand);
+        useResidentCoverageTool();
+        Set<Path> watchedPaths = new LinkedHashSet<>();
+        watchedPaths.add(Paths.get(project.getBuild().getOutputDirectory()));
+        watchedPaths.add(getApp().toPath());
+        try (DirectoryWatcher watcher = new DirectoryWatcher(watchedPaths)) {
+            changeNanos = System.nanoTime();
+            while (true) {
+                getMetrics().clear();
+                try {
+                    super.doExecute(settingsFile);
+                } catch (MojoExecutionException e) {
+                    log.debug(e);
+                    log.error(e.getMessage());
+                }
+                log.info(Messages.get("watch.waiting", watchedPaths)); //$NON-NLS-1$
+                Set<Path> changes = watcher.awaitChanges(quietPeriod, 0);
+                changeNanos = System.nanoTime();
+                log.info(Messages.get("watch.changed", changes.size())); //$NON-NLS-1$
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.debug(e);
+            throw new MojoExecutionException(e);
+        }
+    }
+
+    @Override
+    protected void doOtherWork(Log log, Path covtoolWorkDir) throws MojoExecutionException {
+        List<String> impactedTests = selectTests(log, readImpactedTests(covtoolWorkDir), covtoolWorkDir);
+        String testClassesDir = project.getBuild().getTestOutputDirectory();
+        List<String> patterns = ImpactedTests.toPatterns(impactedTests,
+                testClassesDir == null ? null : Paths.get(testClassesDir));
+        log.info(Messages.get("watch.selected", impactedTests.size(), (System.nanoTime() - changeNanos) / 1000000)); //$NON-NLS-1$
+        for (String pattern : patterns) {
+            log.info("  " + pattern); //$NON-NLS-1$
+        }
+        if (!testCommandLine.isEmpty()) {
+            List<String> unitTestPatterns = ImpactedTests.toPatterns(
+                    TestPlugins.split(project, impactedTests).getUnitTests(),
+                    testClassesDir == null ? null : Paths.get(testClassesDir));
+            if (!unitTestPatterns.isEmpty()) {
+                runTests(log, unitTestPatterns);
+            }
+        }
+    }
+
+    /**
+     * Splits a command line into its arguments, honoring quotes; empty when
+     * there is no command.
+     */
+    static List<String> parseCommand(String commandLine) throws MojoExecutionException {
+        if (commandLine == null || commandLine.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return Arrays.asList(CommandLineUtils.translateCommandline(commandLine));
+        } catch (Exception e) {
+            throw new MojoExecutionException(Messages.get("watch.test.command.invalid", commandLine, //$NON-NLS-1$
+                    e.getMessage()), e);
+        }
+    }
+
+    private void runTests(Log log, List<String> patterns) throws MojoExecutionException {
+        List<String> command = new ArrayList<>(testCommandLine);
+        command.add("-Dtest=" + String.join(",", patterns)); //$NON-NLS-1$ //$NON-NLS-2$
+        command.add("-Dsurefire.failIfNoSpecifiedTests=false"); //$NON-NLS-1$
+        log.debug("Running impacted tests: " + String.join(" ", command)); //$NON-NLS-1$ //$NON-NLS-2$
+        Process process;
+        try {
+            process = new ProcessBuilder(command).directory(project.getBasedir()).inheritIO().start();
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                log.warn(Messages.get("watch.tests.failed", exitCode)); //$NON-NLS-1$
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            // stops watching
+            Thread.currentThread().interrupt();
+        }
+    }
+}
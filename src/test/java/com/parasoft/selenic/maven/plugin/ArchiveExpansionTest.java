@@ -0,0 +1,109 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveExpansionTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPrepare() throws Exception {
+        Path cacheDir = temporaryFolder.getRoot().toPath().resolve("cache");
+        Path preparedDir = temporaryFolder.getRoot().toPath().resolve("expanded");
+        Path war = temporaryFolder.getRoot().toPath().resolve("app.war");
+        byte[] appLib = zip(entries("com/app/lib/L.class", new byte[] { 1 }));
+        byte[] thirdParty = zip(entries("org/other/X.class", new byte[] { 2 }));
+        Files.write(war, zip(entries("WEB-INF/classes/com/app/A.class", new byte[] { 3 }, "WEB-INF/lib/app-lib.jar",
+                appLib, "WEB-INF/lib/third-party.jar", thirdParty, "index.html", new byte[] { 4 })));
+
+        ArchiveExpansion expansion = new ArchiveExpansion(cacheDir, Collections.singletonList("com/app/**"), null);
+        expansion.prepare(war, preparedDir);
+        assertEquals(3, expansion.getExpandedArchives());
+        assertEquals(2, expansion.getUpdatedArchives());
+        assertEquals(1, expansion.getExcludedArchives());
+        assertArrayEquals(new byte[] { 3 }, Files.readAllBytes(preparedDir.resolve("WEB-INF/classes/com/app/A.class")));
+        assertArrayEquals(new byte[] { 1 },
+                Files.readAllBytes(preparedDir.resolve("WEB-INF/lib/app-lib.jar/com/app/lib/L.class")));
+        assertFalse(Files.exists(preparedDir.resolve("WEB-INF/lib/third-party.jar/org/other/X.class")));
+        assertFalse(Files.exists(preparedDir.resolve("index.html")));
+
+        // unchanged
+        expansion = new ArchiveExpansion(cacheDir, Collections.singletonList("com/app/**"), null);
+        expansion.prepare(war, preparedDir);
+        assertEquals(0, expansion.getExpandedArchives());
+        assertEquals(0, expansion.getUpdatedArchives());
+
+        // changed application classes, same libraries
+        Files.write(war, zip(entries("WEB-INF/classes/com/app/B.class", new byte[] { 5 }, "WEB-INF/lib/app-lib.jar",
+                appLib, "WEB-INF/lib/third-party.jar", thirdParty)));
+        expansion = new ArchiveExpansion(cacheDir, Collections.singletonList("com/app/**"), null);
+        expansion.prepare(war, preparedDir);
+        assertEquals(1, expansion.getExpandedArchives());
+        assertEquals(1, expansion.getUpdatedArchives());
+        assertEquals(1, expansion.getReusedArchives());
+        assertFalse(Files.exists(preparedDir.resolve("WEB-INF/classes/com/app/A.class")));
+        assertTrue(Files.exists(preparedDir.resolve("WEB-INF/classes/com/app/B.class")));
+        assertTrue(Files.exists(preparedDir.resolve("WEB-INF/lib/app-lib.jar/com/app/lib/L.class")));
+
+        // removed library
+        Files.write(war, zip(entries("WEB-INF/classes/com/app/B.class", new byte[] { 5 })));
+        expansion = new ArchiveExpansion(cacheDir, Collections.singletonList("com/app/**"), null);
+        expansion.prepare(war, preparedDir);
+        assertFalse(Files.exists(preparedDir.resolve("WEB-INF/lib/app-lib.jar/com/app/lib/L.class")));
+        assertTrue(Files.exists(preparedDir.resolve("WEB-INF/classes/com/app/B.class")));
+    }
+
+    private static Map<String, byte[]> entries(Object... namesAndContents) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            entries.put((String) namesAndContents[i], (byte[]) namesAndContents[i + 1]);
+        }
+        return entries;
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BackgroundAnalysisTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testAwait() throws Exception {
+        MavenProject project = new MavenProject();
+        RunMetrics metrics = new RunMetrics();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        BackgroundAnalysis.start(project, metrics, () -> {
+            assertNotEquals(caller, Thread.currentThread());
+            started.countDown();
+            release.await();
+            return Paths.get("covtool");
+        });
+        started.await();
+        BackgroundAnalysis analysis = BackgroundAnalysis.remove(project);
+        assertNull(BackgroundAnalysis.remove(project));
+        release.countDown();
+        assertEquals(Paths.get("covtool"), analysis.await());
+        assertSame(metrics, analysis.getMetrics());
+    }
+
+    @Test
+    public void testAwaitFailure() throws Exception {
+        MavenProject project = new MavenProject();
+        MojoExecutionException failure = new MojoExecutionException("failed");
+        BackgroundAnalysis.start(project, new RunMetrics(), () -> {
+            throw failure;
+        });
+        try {
+            BackgroundAnalysis.remove(project).await();
+            fail();
+        } catch (MojoExecutionException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void testDeleteInBackground() throws Exception {
+        Path workDir = temporaryFolder.newFolder("covtool").toPath();
+        Files.createDirectories(workDir.resolve(".coverage").resolve("lsts"));
+        Files.write(workDir.resolve(".coverage").resolve("lsts").resolve("impacted_tests.lst"),
+                "com.foo.BarTest".getBytes());
+        // left by an earlier run
+        Files.createDirectories(temporaryFolder.getRoot().toPath().resolve("covtool.deleted-1").resolve("sub"));
+
+        BackgroundAnalysis.deleteInBackground(workDir);
+        assertFalse(Files.exists(workDir));
+        for (int i = 0; i < 100 && countEntries(temporaryFolder.getRoot().toPath()) > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, countEntries(temporaryFolder.getRoot().toPath()));
+
+        // nothing to delete
+        BackgroundAnalysis.deleteInBackground(workDir);
+        assertEquals(0, countEntries(temporaryFolder.getRoot().toPath()));
+    }
+
+    private static long countEntries(Path dir) throws Exception {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.count();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BaselineIndexTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompileAndQuery() throws Exception {
+        Path baseline = Paths.get(getClass().getResource("/coverage-map.xml").toURI());
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve("index").resolve("baseline.idx");
+        BaselineIndexCompiler.compile(baseline, indexFile);
+        try (BaselineIndex index = BaselineIndex.open(indexFile)) {
+            assertEquals(InputFingerprint.hash(baseline), index.getBaselineHash());
+            assertEquals(3, index.getTestCount());
+            assertEquals(3, index.getElementCount());
+            assertEquals(new TreeSet<>(Arrays.asList("com.foo.BarTest#testAll", "com.foo.BarTest#testBaz",
+                    "com.foo.QuxTest")), index.getTests("com.foo.Bar#baz"));
+            assertEquals(new TreeSet<>(Arrays.asList("com.foo.QuxTest")), index.getTests("com.foo.Bar#qux"));
+            assertEquals(new TreeSet<>(Arrays.asList("com.foo.BarTest#testAll", "com.foo.BarTest#testBaz",
+                    "com.foo.QuxTest")), index.getTests("com.foo.Bar"));
+            assertEquals(new TreeSet<>(Arrays.asList("com.foo.BarTest#testAll")), index.getTests("com.foo.Ba"));
+            assertTrue(index.getTests("com.foo.Bar#missing").isEmpty());
+            assertEquals(Arrays.asList("com.foo.Bar#baz", "com.foo.Bar#qux"), index.getCoveredElements(2));
+        }
+    }
+
+    @Test
+    public void testCompileWithoutElements() throws Exception {
+        Path baseline = temporaryFolder.newFile("baseline.xml").toPath();
+        Files.write(baseline, ("<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<report><package name=\"com/foo\"><class name=\"com/foo/Bar\"/></package></report>\n")
+                .getBytes(UTF_8));
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve("baseline.idx");
+        try {
+            BaselineIndexCompiler.compile(baseline, indexFile);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(baseline.toString()));
+        }
+        assertFalse(Files.exists(indexFile));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BytecodeFingerprintsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testDiffIgnoresDebugInformation() throws Exception {
+        File reference = compile("reference", "-g", "int baz() {\n return 1;\n}", "int qux() { return 2; }");
+        File recompiled = compile("recompiled", "-g:none", "\n\n// moved\nint baz() { return 1; }",
+                "int qux() { return 2; }");
+        File changed = compile("changed", "-g", "int baz() {\n return 1;\n}", "int qux() { return 3; }");
+
+        BytecodeFingerprints referenceFingerprints = BytecodeFingerprints.compute(reference);
+        Path stored = temporaryFolder.getRoot().toPath().resolve("classes.fp");
+        referenceFingerprints.store(stored);
+        referenceFingerprints = BytecodeFingerprints.load(stored);
+        assertEquals(new TreeSet<>(Arrays.asList("com/foo/Bar", "com/foo/Other")),
+                referenceFingerprints.getClassNames());
+
+        assertTrue(referenceFingerprints.diff(BytecodeFingerprints.compute(recompiled)).isEmpty());
+
+        BytecodeFingerprints.Diff diff = referenceFingerprints.diff(BytecodeFingerprints.compute(changed));
+        assertEquals(Collections.singleton("com/foo/Bar"), diff.changedClasses);
+        assertEquals(Collections.singleton("com.foo.Bar#qux"), diff.changedMethods);
+        assertTrue(diff.removedClasses.isEmpty());
+    }
+
+    @Test
+    public void testAntPatterns() {
+        AntPatterns patterns = new AntPatterns(Arrays.asList("**/com/parasoft/**", "org/*/Util"),
+                Arrays.asList("**/*Logger"));
+        assertTrue(patterns.matches("com/parasoft/Foo"));
+        assertTrue(patterns.matches("x/com/parasoft/y/Foo"));
+        assertTrue(patterns.matches("org/foo/Util"));
+        assertTrue(!patterns.matches("org/foo/bar/Util"));
+        assertTrue(!patterns.matches("com/parasoft/FooLogger"));
+        assertTrue(new AntPatterns(null, null).matches("any/Class"));
+    }
+
+    private File compile(String name, String debugOption, String... methods) throws Exception {
+        File sourceDir = temporaryFolder.newFolder(name + "-src", "com", "foo");
+        File outputDir = temporaryFolder.newFolder(name);
+        File bar = new File(sourceDir, "Bar.java");
+        Files.write(bar.toPath(), ("package com.foo;\npublic class Bar {\n" + String.join("\n", methods) + "\n}\n")
+                .getBytes(UTF_8));
+        File other = new File(sourceDir, "Other.java");
+        Files.write(other.toPath(), "package com.foo;\nclass Other {\n}\n".getBytes(UTF_8));
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, debugOption, "-d",
+                outputDir.getAbsolutePath(), bar.getAbsolutePath(), other.getAbsolutePath()));
+        return outputDir;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClassDataSharingTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testIsSupported() {
+        assertFalse(ClassDataSharing.isSupported("1.8"));
+        assertFalse(ClassDataSharing.isSupported("11"));
+        assertTrue(ClassDataSharing.isSupported("13"));
+        assertTrue(ClassDataSharing.isSupported("17"));
+        assertFalse(ClassDataSharing.isSupported(null));
+    }
+
+    @Test
+    public void testIsArchiveError() {
+        assertTrue(ClassDataSharing.isArchiveError("An error has occurred while processing the shared archive file."));
+        assertTrue(ClassDataSharing.isArchiveError("[0.010s][warning][cds] Unable to map shared spaces"));
+        assertFalse(ClassDataSharing.isArchiveError("Exception in thread \"main\" java.lang.OutOfMemoryError"));
+    }
+
+    @Test
+    public void testLifecycle() throws Exception {
+        assumeTrue(ClassDataSharing.isSupported(System.getProperty("java.specification.version")));
+        Path cacheDir = temporaryFolder.getRoot().toPath().resolve("cds");
+        Path covtoolJar = temporaryFolder.newFile("jtestcov.jar").toPath();
+        List<String> vmArgs = Collections.singletonList("-Xmx1g");
+
+        ClassDataSharing training = ClassDataSharing.prepare(cacheDir, covtoolJar, vmArgs);
+        assertNotNull(training);
+        assertTrue(training.isTraining());
+        String vmArg = training.getVmArgs().get(0);
+        assertTrue(vmArg.startsWith("-XX:ArchiveClassesAtExit="));
+        // the JVM writes the archive at exit
+        Files.write(cacheDir.resolve(vmArg.substring(vmArg.indexOf('=') + 1)), new byte[] { 1 });
+        training.complete(true);
+        assertTrue(Files.isRegularFile(training.getArchive()));
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(1, files.count());
+        }
+
+        ClassDataSharing archive = ClassDataSharing.prepare(cacheDir, covtoolJar, vmArgs);
+        assertFalse(archive.isTraining());
+        assertEquals(Collections.singletonList("-XX:SharedArchiveFile=" + training.getArchive()),
+                archive.getVmArgs());
+        // other JVM options
+        assertTrue(ClassDataSharing.prepare(cacheDir, covtoolJar, Collections.singletonList("-Xmx2g")).isTraining());
+        archive.invalidate();
+        assertTrue(ClassDataSharing.prepare(cacheDir, covtoolJar, vmArgs).isTraining());
+
+        // another coverage tool version
+        Files.write(covtoolJar, new byte[] { 2 });
+        ClassDataSharing other = ClassDataSharing.prepare(cacheDir, covtoolJar, vmArgs);
+        assertTrue(other.isTraining());
+        other.complete(false);
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompressedBaselineTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCheck() throws Exception {
+        CompressedBaseline.check(temporaryFolder.newFile("baseline.xml").toPath());
+        CompressedBaseline.check(writeCompressed("baseline.xml.gz", "<Coverage/>"));
+        assertCheckFails(temporaryFolder.newFile("baseline.xml.zst").toPath());
+        Path invalid = temporaryFolder.newFile("invalid.xml.gz").toPath();
+        Files.write(invalid, "<Coverage/>".getBytes(UTF_8));
+        assertCheckFails(invalid);
+    }
+
+    @Test
+    public void testDecompress() throws Exception {
+        Path cacheDir = temporaryFolder.getRoot().toPath().resolve("cache");
+        String xml = "<Coverage><Class name=\"com.foo.Bar\"/></Coverage>";
+        Path baseline = writeCompressed("baseline.xml.gz", xml);
+
+        CompressedBaseline decompressed = CompressedBaseline.decompress(baseline, cacheDir);
+        assertFalse(decompressed.isCached());
+        assertEquals(Files.size(baseline), decompressed.getCompressedBytes());
+        assertEquals(xml.length(), decompressed.getBytes());
+        assertArrayEquals(xml.getBytes(UTF_8), Files.readAllBytes(decompressed.getFile()));
+
+        // the same content under another name
+        Path copy = temporaryFolder.getRoot().toPath().resolve("copy.gz");
+        Files.copy(baseline, copy);
+        CompressedBaseline cached = CompressedBaseline.decompress(copy, cacheDir);
+        assertTrue(cached.isCached());
+        assertEquals(decompressed.getFile(), cached.getFile());
+
+        for (int i = 0; i < CompressedBaseline.MAX_CACHED; i++) {
+            CompressedBaseline.decompress(writeCompressed("other" + i + ".gz", "<Coverage/>" + i), cacheDir);
+        }
+        // recently used baselines are kept beyond the maximum
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(CompressedBaseline.MAX_CACHED + 1, files.count());
+        }
+
+        Files.setLastModifiedTime(decompressed.getFile(), FileTime.fromMillis(System.currentTimeMillis()
+                - CompressedBaseline.MIN_UNUSED_MILLIS - 1000));
+        CompressedBaseline.decompress(writeCompressed("new.gz", "<Coverage/>new"), cacheDir);
+        assertFalse(Files.exists(decompressed.getFile()));
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(CompressedBaseline.MAX_CACHED + 1, files.count());
+        }
+    }
+
+    @Test
+    public void testContains() throws Exception {
+        String xml = "<Coverage><Location path=\"shop.war!/WEB-INF/lib/app-lib.jar!/com/app/L.class\"/></Coverage>";
+        Path baseline = writeCompressed("baseline.xml.gz", xml);
+        assertTrue(CompressedBaseline.contains(baseline, "shop.war"));
+        assertTrue(CompressedBaseline.contains(baseline, "app-lib.jar!/"));
+        assertFalse(CompressedBaseline.contains(baseline, "shop.ear"));
+        Path uncompressed = temporaryFolder.newFile("baseline.xml").toPath();
+        Files.write(uncompressed, "aaab".getBytes(UTF_8));
+        assertTrue(CompressedBaseline.contains(uncompressed, "aab"));
+        assertFalse(CompressedBaseline.contains(uncompressed, "aaaa"));
+    }
+
+    @Test
+    public void testCompileIndex() throws Exception {
+        Path baseline = writeCompressed("baseline.xml.gz", "<Coverage><Class name=\"com.foo.Bar\">"
+                + "<Method name=\"baz\"><Hit testId=\"1\"/></Method></Class>"
+                + "<Test id=\"1\" name=\"com.foo.BarTest\"/></Coverage>");
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve("baseline.idx");
+        BaselineIndexCompiler.compile(baseline, indexFile);
+        try (BaselineIndex index = BaselineIndex.open(indexFile)) {
+            assertTrue(index.getTests("com.foo.Bar#baz").contains("com.foo.BarTest"));
+        }
+    }
+
+    private Path writeCompressed(String fileName, String content) throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve(fileName);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(content.getBytes(UTF_8));
+        }
+        return file;
+    }
+
+    private static void assertCheckFails(Path baseline) {
+        try {
+            CompressedBaseline.check(baseline);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(baseline.toString()));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageMergerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMerge() throws Exception {
+        testMerge(CoverageMerger.DEFAULT_MAX_FAN_IN);
+    }
+
+    @Test
+    public void testMergeInPasses() throws Exception {
+        // merges 2 of the 6 runs in each of 4 passes before writing the baseline
+        testMerge(2);
+    }
+
+    @Test
+    public void testMergeWithoutCoverage() throws Exception {
+        Path report = temporaryFolder.newFile("report.xml").toPath();
+        Files.write(report, ("<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<report><package name=\"com/foo\"><class name=\"com/foo/Bar\"/></package></report>\n")
+                .getBytes(UTF_8));
+        Path baseline = temporaryFolder.getRoot().toPath().resolve("baseline.xml");
+        try {
+            new CoverageMerger(temporaryFolder.getRoot().toPath().resolve("merge"), 2)
+                    .merge(Collections.singletonList(report), baseline, 1);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(report.toString()));
+        }
+        assertFalse(Files.exists(baseline));
+    }
+
+    @Test
+    public void testMergeLongTestName() throws Exception {
+        StringBuilder testName = new StringBuilder("com.foo.BarTest#test[");
+        while (testName.length() < 70000) {
+            testName.append("parameter ");
+        }
+        testName.append(']');
+        Path report = temporaryFolder.newFile("report.xml").toPath();
+        Files.write(report, ("<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<Coverage>\n"
+                + "  <Class name=\"com.foo.Bar\"><Method name=\"baz\"><Hit testId=\"1\"/></Method></Class>\n"
+                + "  <Test id=\"1\" name=\"" + testName + "\"/>\n"
+                + "</Coverage>\n").getBytes(UTF_8));
+        Path coverageMap = temporaryFolder.getRoot().toPath().resolve("coverage-map.xml");
+        new CoverageMerger(temporaryFolder.getRoot().toPath().resolve("merge"), 1)
+                .merge(Collections.singletonList(report), coverageMap, 1);
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve("coverage-map.idx");
+        BaselineIndexCompiler.compile(coverageMap, indexFile);
+        try (BaselineIndex index = BaselineIndex.open(indexFile)) {
+            assertEquals(new TreeSet<>(Arrays.asList(testName.toString())), index.getTests("com.foo.Bar#baz"));
+        }
+    }
+
+    private void testMerge(int maxFanIn) throws Exception {
+        Path report1 = temporaryFolder.newFile("report1.xml").toPath();
+        Files.write(report1, ("<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<Coverage>\n"
+                + "  <Class name=\"com.foo.Bar\">\n"
+                + "    <Method name=\"baz\"><Hit testId=\"1\"/><Hit testIds=\"2\"/></Method>\n"
+                + "  </Class>\n"
+                + "  <Class name=\"com.foo.Qux\">\n"
+                + "    <Method name=\"quux\"><Hit testId=\"2\"/></Method>\n"
+                + "  </Class>\n"
+                + "  <Tests>\n"
+                + "    <Test id=\"1\" name=\"com.foo.BarTest#testBaz\"/>\n"
+                + "    <Test id=\"2\" name=\"com.foo.BarTest#testAll\"/>\n"
+                + "  </Tests>\n"
+                + "</Coverage>\n").getBytes(UTF_8));
+        Path report2 = temporaryFolder.newFile("report2.xml").toPath();
+        Files.write(report2, ("<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<Coverage>\n"
+                + "  <Tests>\n"
+                + "    <Test id=\"1\" name=\"com.foo.QuxTest\"/>\n"
+                + "    <Test id=\"2\" name=\"com.foo.BarTest#testAll\"/>\n"
+                + "  </Tests>\n"
+                + "  <Class name=\"com.foo.Bar\">\n"
+                + "    <Method name=\"baz\"><Hit testIds=\"1, 2\"/></Method>\n"
+                + "    <Method name=\"a&amp;b\"><Hit testId=\"1\"/></Method>\n"
+                + "  </Class>\n"
+                + "</Coverage>\n").getBytes(UTF_8));
+        Path tempDir = temporaryFolder.getRoot().toPath().resolve("merge");
+        Path baseline = temporaryFolder.getRoot().toPath().resolve("out").resolve("baseline.xml");
+        // spills a run every record
+        CoverageMerger merger = new CoverageMerger(tempDir, 2, maxFanIn);
+        merger.merge(Arrays.asList(report1, report2), baseline, 2);
+        assertEquals(3, merger.getTestCount());
+        assertEquals(3, merger.getMethodCount());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+        assertTrue(CoverageMerger.isCoverageMap(baseline));
+        assertFalse(CoverageMerger.isCoverageMap(report1));
+
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve("baseline.idx");
+        BaselineIndexCompiler.compile(baseline, indexFile);
+        try (BaselineIndex index = BaselineIndex.open(indexFile)) {
+            assertEquals(3, index.getTestCount());
+            assertEquals(3, index.getElementCount());
+            assertEquals(new TreeSet<>(Arrays.asList("com.foo.BarTest#testAll", "com.foo.BarTest#testBaz",
+                    "com.foo.QuxTest")), index.getTests("com.foo.Bar#baz"));
+            assertEquals(new TreeSet<>(Arrays.asList("com.foo.QuxTest")), index.getTests("com.foo.Bar#a&b"));
+            assertEquals(new TreeSet<>(Arrays.asList("com.foo.BarTest#testAll")), index.getTests("com.foo.Qux"));
+        }
+    }
+}
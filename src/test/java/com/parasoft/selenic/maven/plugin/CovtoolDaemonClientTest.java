@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CovtoolDaemonClientTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRotateLog() throws Exception {
+        Path logFile = temporaryFolder.getRoot().toPath().resolve("daemon.log");
+        Path previousLogFile = temporaryFolder.getRoot().toPath().resolve("daemon.log.1");
+        CovtoolDaemonClient.rotateLog(logFile);
+        assertFalse(Files.exists(previousLogFile));
+
+        Files.write(logFile, new byte[] { 1 });
+        CovtoolDaemonClient.rotateLog(logFile);
+        assertFalse(Files.exists(previousLogFile));
+
+        byte[] large = new byte[(int) CovtoolDaemonClient.MAX_LOG_BYTES + 1];
+        Files.write(logFile, large);
+        CovtoolDaemonClient.rotateLog(logFile);
+        assertFalse(Files.exists(logFile));
+        assertArrayEquals(large, Files.readAllBytes(previousLogFile));
+
+        // the previous log is replaced
+        Files.write(logFile, new byte[large.length + 1]);
+        CovtoolDaemonClient.rotateLog(logFile);
+        assertEquals(large.length + 1, Files.size(previousLogFile));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CovtoolRunnerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRun() throws Exception {
+        Path covtoolJar = createCovtoolJar();
+        Path runDir = temporaryFolder.newFolder("run").toPath();
+        Path targetDir = temporaryFolder.newFolder("target").toPath();
+        int exitCode;
+        try {
+            exitCode = new CovtoolRunner(covtoolJar).run(new String[] { runDir.toString() }, runDir, targetDir,
+                    Throwable::printStackTrace);
+        } catch (UnsupportedOperationException e) {
+            // security manager disallowed
+            assumeNoException(e);
+            return;
+        }
+        assertEquals(3, exitCode);
+        assertTrue(Files.isRegularFile(targetDir.resolve(".coverage").resolve("result")));
+        assertFalse(Files.exists(runDir.resolve(".coverage")));
+        // written by another module during the run
+        assertTrue(Files.isRegularFile(runDir.resolve("other.txt")));
+        assertFalse(Files.exists(targetDir.resolve("other.txt")));
+    }
+
+    /**
+     * Creates a coverage tool that writes its results and a file of another
+     * module to the folder given as argument, then exits with 3.
+     */
+    private Path createCovtoolJar() throws Exception {
+        Path sourceDir = temporaryFolder.newFolder("covtool-src").toPath();
+        Path classesDir = temporaryFolder.newFolder("covtool-classes").toPath();
+        Path source = sourceDir.resolve("FakeCovtool.java");
+        Files.write(source, ("import java.nio.file.*;\n"
+                + "public class FakeCovtool {\n"
+                + "  public static void main(String[] args) throws Exception {\n"
+                + "    Path dir = Paths.get(args[0]);\n"
+                + "    Files.write(Files.createDirectories(dir.resolve(\".coverage\")).resolve(\"result\"), new byte[] { 1 });\n"
+                + "    Files.write(dir.resolve(\"other.txt\"), new byte[] { 2 });\n"
+                + "    System.exit(3);\n"
+                + "  }\n"
+                + "}\n").getBytes(UTF_8));
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classesDir.toString(),
+                source.toString()));
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "FakeCovtool");
+        Path covtoolJar = temporaryFolder.getRoot().toPath().resolve("jtestcov.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(covtoolJar), manifest)) {
+            out.putNextEntry(new JarEntry("FakeCovtool.class"));
+            out.write(Files.readAllBytes(classesDir.resolve("FakeCovtool.class")));
+            out.closeEntry();
+        }
+        return covtoolJar;
+    }
+}
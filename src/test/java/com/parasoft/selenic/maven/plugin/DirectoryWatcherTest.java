@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DirectoryWatcherTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testAwaitChanges() throws Exception {
+        Path classes = temporaryFolder.newFolder("classes").toPath();
+        Path libs = temporaryFolder.newFolder("libs").toPath();
+        Path appJar = Files.createFile(libs.resolve("app.jar"));
+        try (DirectoryWatcher watcher = new DirectoryWatcher(Arrays.asList(classes, appJar))) {
+            assertTrue(watcher.awaitChanges(100, 200).isEmpty());
+
+            // a burst of changes in a new package
+            Path packageDir = Files.createDirectories(classes.resolve("com").resolve("foo"));
+            Files.write(packageDir.resolve("Bar.class"), new byte[] { 1 });
+            Set<Path> changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(classes.resolve("com")));
+
+            // the new package is watched too
+            Files.write(packageDir.resolve("Baz.class"), new byte[] { 2 });
+            changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(packageDir.resolve("Baz.class")));
+
+            // files next to the application jar are ignored
+            Files.createFile(libs.resolve("other.jar"));
+            assertTrue(watcher.awaitChanges(100, 500).isEmpty());
+            Files.write(appJar, new byte[] { 3 });
+            changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(appJar));
+            assertFalse(changes.contains(libs.resolve("other.jar")));
+        }
+    }
+
+    @Test
+    public void testAwaitChangesOfRecreatedFolder() throws Exception {
+        Path target = temporaryFolder.newFolder("target").toPath();
+        Path classes = Files.createDirectories(target.resolve("classes"));
+        Files.write(Files.createDirectories(classes.resolve("com")).resolve("Foo.class"), new byte[] { 1 });
+        try (DirectoryWatcher watcher = new DirectoryWatcher(Arrays.asList(classes))) {
+            // deleted and created again
+            AbstractCoverageMojo.delete(classes);
+            Set<Path> changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(classes));
+            Path packageDir = Files.createDirectories(classes.resolve("com"));
+            changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(classes));
+            Files.write(packageDir.resolve("Bar.class"), new byte[] { 2 });
+            changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(packageDir.resolve("Bar.class")));
+
+            // deleted with its parent, as by a clean build
+            AbstractCoverageMojo.delete(target);
+            changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(classes));
+            Files.createDirectories(target);
+            Files.createDirectories(classes);
+            watcher.awaitChanges(500, 30000);
+            Files.write(classes.resolve("Baz.class"), new byte[] { 3 });
+            changes = watcher.awaitChanges(500, 30000);
+            assertTrue(changes.toString(), changes.contains(classes.resolve("Baz.class")));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ForkSchedulerTest {
+
+    @Test
+    public void testGetRequiredBytes() {
+        assertEquals(512L << 20, ForkScheduler.parseSize("512m"));
+        assertEquals(2L << 30, ForkScheduler.parseSize("2G"));
+        assertEquals(1024, ForkScheduler.parseSize("1024"));
+        assertEquals(-1, ForkScheduler.parseSize("x"));
+        assertEquals((3L << 30) + ForkScheduler.NON_HEAP_BYTES,
+                ForkScheduler.getRequiredBytes(Arrays.asList("-Xms1g", "-Xmx2g", "-XX:MaxHeapSize=3g")));
+        assertEquals(ForkScheduler.getPhysicalMemory() / 4 + ForkScheduler.NON_HEAP_BYTES,
+                ForkScheduler.getRequiredBytes(null));
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        ForkScheduler scheduler = new ForkScheduler();
+        List<String> started = new CopyOnWriteArrayList<>();
+        ForkScheduler.Lease first = scheduler.acquire(300, 2, 1000);
+        assertEquals(0, first.getWaitMillis());
+        // does not fit in the memory budget
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        Thread second = new Thread(() -> {
+            try (ForkScheduler.Lease lease = scheduler.acquire(800, 2, 1000)) {
+                started.add("second");
+                secondStarted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        second.start();
+        waitUntilQueued(second);
+        // fits with the first one, but waits for the second one, with which it does not fit
+        Thread third = new Thread(() -> {
+            try (ForkScheduler.Lease lease = scheduler.acquire(400, 2, 1000)) {
+                started.add("third");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        third.start();
+        waitUntilQueued(third);
+        assertTrue(started.isEmpty());
+        first.close();
+        assertTrue(secondStarted.await(10, TimeUnit.SECONDS));
+        second.join(10000);
+        third.join(10000);
+        assertEquals(Arrays.asList("second", "third"), started);
+        assertEquals(0, scheduler.getRunning());
+
+        // larger than the budget, runs alone
+        try (ForkScheduler.Lease lease = scheduler.acquire(2000, 2, 1000)) {
+            assertEquals(1, scheduler.getRunning());
+        }
+    }
+
+    private static void waitUntilQueued(Thread thread) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+}
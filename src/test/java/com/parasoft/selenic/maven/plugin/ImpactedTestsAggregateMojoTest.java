@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImpactedTestsAggregateMojoTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testGroupByOwner() throws Exception {
+        Path root = temporaryFolder.getRoot().toPath();
+        MavenProject moduleA = createProject("a");
+        moduleA.addTestCompileSourceRoot(root.resolve("a").resolve("src").toString());
+        moduleA.getBuild().setTestOutputDirectory(root.resolve("a").resolve("test-classes").toString());
+        // in both the test sources and the compiled test classes
+        createFile(root.resolve("a").resolve("src").resolve("com").resolve("foo").resolve("ATest.java"));
+        createFile(root.resolve("a").resolve("test-classes").resolve("com").resolve("foo").resolve("ATest.class"));
+        createFile(root.resolve("a").resolve("test-classes").resolve("com").resolve("foo").resolve("ATest$1.class"));
+        createFile(root.resolve("a").resolve("test-classes").resolve("com").resolve("bar").resolve("CommonTest.class"));
+
+        MavenProject moduleB = createProject("b");
+        moduleB.getBuild().setTestOutputDirectory(root.resolve("b").resolve("test-classes").toString());
+        createFile(root.resolve("b").resolve("test-classes").resolve("com").resolve("bar").resolve("BTest.class"));
+        createFile(root.resolve("b").resolve("test-classes").resolve("com").resolve("bar").resolve("CommonTest.class"));
+
+        // without tests
+        MavenProject parent = createProject("parent");
+
+        List<MavenProject> projects = Arrays.asList(parent, moduleA, moduleB);
+        Map<String, List<MavenProject>> owners = ImpactedTestsAggregateMojo.getTestClassOwners(projects);
+        assertEquals(Collections.singletonList(moduleA), owners.get("com.foo.ATest"));
+        assertEquals(Arrays.asList(moduleA, moduleB), owners.get("com.bar.CommonTest"));
+
+        Log log = mock(Log.class);
+        Map<MavenProject, List<String>> testsByProject = ImpactedTestsAggregateMojo.groupByOwner(log, projects,
+                Arrays.asList("com.foo.ATest#a", "com.bar.BTest", "com.bar.CommonTest", "com.gen.GeneratedTest"),
+                owners);
+        assertEquals(Collections.emptyList(), testsByProject.get(parent));
+        assertEquals(Arrays.asList("com.foo.ATest#a", "com.bar.CommonTest", "com.gen.GeneratedTest"),
+                testsByProject.get(moduleA));
+        assertEquals(Arrays.asList("com.bar.BTest", "com.bar.CommonTest", "com.gen.GeneratedTest"),
+                testsByProject.get(moduleB));
+        verify(log).warn(contains("com.gen.GeneratedTest"));
+    }
+
+    @Test
+    public void testGetAnalysisProject() {
+        MavenProject parent = createProject("parent");
+        MavenProject moduleA = createProject("a");
+        MavenSession session = mock(MavenSession.class);
+        when(session.getProjects()).thenReturn(Arrays.asList(parent, moduleA));
+        when(session.getTopLevelProject()).thenReturn(parent);
+        assertSame(parent, ImpactedTestsAggregateMojo.getAnalysisProject(session));
+
+        // the top level project is not built, as with -pl
+        when(session.getProjects()).thenReturn(Collections.singletonList(moduleA));
+        assertSame(moduleA, ImpactedTestsAggregateMojo.getAnalysisProject(session));
+    }
+
+    private static void createFile(Path file) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.createFile(file);
+    }
+
+    private MavenProject createProject(String artifactId) {
+        MavenProject project = new MavenProject();
+        project.setArtifactId(artifactId);
+        project.getBuild().setDirectory(temporaryFolder.getRoot().toPath().resolve(artifactId).resolve("target")
+                .toString());
+        return project;
+    }
+}
@@ -17,27 +17,38 @@
 package com.parasoft.selenic.maven.plugin;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.endsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockConstruction;
 import static org.mockito.Mockito.withSettings;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Stream;
 
+import javax.tools.ToolProvider;
+
 import org.apache.commons.lang3.SystemUtils;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.testing.MojoRule;
 import org.apache.maven.plugin.testing.WithoutMojo;
+import org.apache.maven.project.MavenProject;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.MockedConstruction;
@@ -63,14 +74,10 @@ public class ImpactedTestsMojoTest {
         ImpactedTestsMojo impactedTestsMojo = (ImpactedTestsMojo) rule.lookupConfiguredMojo(pom, "impacted-tests");
         assertNotNull(impactedTestsMojo);
         List<String> command;
-        Path mockSelenicInstallation = Files.createTempDirectory("selenic");
+        Path mockSelenicInstallation = createMockSelenicInstallation();
         Path appFolder = Files.createDirectories(pom.toPath().resolve("target").resolve("appfolder"));
+        deleteDirectory(pom.toPath().resolve("target").resolve("covtool"));
         try {
-            Files.createFile(mockSelenicInstallation.resolve("selenic_agent.jar"));
-            Files.createFile(mockSelenicInstallation.resolve("selenic_analyzer.jar"));
-            Path mockCovtoolInstallation = mockSelenicInstallation.resolve("coverage").resolve("Java").resolve("jtestcov");
-            Files.createDirectories(mockCovtoolInstallation);
-            Files.createFile(mockCovtoolInstallation.resolve("jtestcov.jar"));
             rule.setVariableValueToObject(impactedTestsMojo, "selenicHome", mockSelenicInstallation.toFile());
             Process process = mock(Process.class);
             try (MockedConstruction<ProcessBuilder> processBuilder = mockConstruction(ProcessBuilder.class,
@@ -84,9 +91,7 @@ public class ImpactedTestsMojoTest {
                 command = constructed.get(0).command();
             }
         } finally {
-            try (Stream<Path> stream = Files.walk(mockSelenicInstallation)) {
-                stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
-            }
+            deleteDirectory(mockSelenicInstallation);
         }
         assertEquals(24, command.size());
         assertThat(command.get(0), endsWith(Paths.get("bin", SystemUtils.IS_OS_WINDOWS ? "java.exe" : "java").toString()));
@@ -115,6 +120,220 @@ public class ImpactedTestsMojoTest {
         assertEquals(new File(pom, "baseline.xml").getAbsolutePath(), command.get(23));
     }
 
+    @Test
+    public void testExecuteUpToDate() throws Exception {
+        File pom = new File("target/test-classes/project-to-test/");
+        Path mockSelenicInstallation = createMockSelenicInstallation();
+        Files.createDirectories(pom.toPath().resolve("target").resolve("appfolder"));
+        deleteDirectory(pom.toPath().resolve("target").resolve("covtool"));
+        try {
+            Process process = mock(Process.class);
+            try (MockedConstruction<ProcessBuilder> processBuilder = mockConstruction(ProcessBuilder.class,
+                    withSettings().defaultAnswer(CALLS_REAL_METHODS), (mock, context) -> {
+                        doReturn(process).when(mock).start();
+                    })) {
+                for (int i = 0; i < 3; i++) {
+                    ImpactedTestsMojo impactedTestsMojo = (ImpactedTestsMojo) rule.lookupConfiguredMojo(pom, "impacted-tests");
+                    rule.setVariableValueToObject(impactedTestsMojo, "selenicHome", mockSelenicInstallation.toFile());
+                    if (i > 0) {
+                        // a scan option is an input too
+                        rule.setVariableValueToObject(impactedTestsMojo, "incrementalScanMaxClasses", 10);
+                    }
+                    impactedTestsMojo.execute();
+                }
+                assertEquals(2, processBuilder.constructed().size());
+            }
+            String metrics = new String(Files.readAllBytes(pom.toPath().resolve("target").resolve("covtool")
+                    .resolve(RunMetrics.FILE_NAME)), StandardCharsets.UTF_8);
+            assertThat(metrics, containsString("\"upToDate\": true"));
+            assertThat(metrics, containsString("\"testsSelected\": 0"));
+        } finally {
+            deleteDirectory(mockSelenicInstallation);
+        }
+    }
+
+    @Test
+    public void testExecuteWithCoverageMap() throws Exception {
+        File pom = new File("target/test-classes/project-to-test/");
+        ImpactedTestsMojo impactedTestsMojo = (ImpactedTestsMojo) rule.lookupConfiguredMojo(pom, "impacted-tests");
+        Path mockSelenicInstallation = createMockSelenicInstallation();
+        Path coverageMap = Files.createTempFile("coverage-map", ".xml");
+        Files.createDirectories(pom.toPath().resolve("target").resolve("appfolder"));
+        try {
+            Files.write(coverageMap, "<Coverage format=\"selenic-coverage-map\"/>".getBytes(StandardCharsets.UTF_8));
+            rule.setVariableValueToObject(impactedTestsMojo, "selenicHome", mockSelenicInstallation.toFile());
+            rule.setVariableValueToObject(impactedTestsMojo, "baseline", coverageMap.toFile());
+            impactedTestsMojo.execute();
+            fail();
+        } catch (MojoExecutionException e) {
+            assertThat(e.getMessage(), containsString("coverage-merge"));
+        } finally {
+            deleteDirectory(mockSelenicInstallation);
+            Files.delete(coverageMap);
+        }
+    }
+
+    @Test
+    public void testShardsIgnoreLocalReports() throws Exception {
+        File pom = new File("target/test-classes/project-to-test/");
+        ImpactedTestsMojo impactedTestsMojo = (ImpactedTestsMojo) rule.lookupConfiguredMojo(pom, "impacted-tests");
+        MavenProject project = (MavenProject) rule.getVariableValueFromObject(impactedTestsMojo, "project");
+        Path durationsFile = Files.createTempFile("durations", ".properties");
+        Path reportsDir = Paths.get(project.getBuild().getDirectory()).resolve("surefire-reports");
+        try {
+            Files.write(durationsFile, Arrays.asList("com.foo.ATest=10", "com.foo.BTest=7", "com.foo.CTest=6",
+                    "com.foo.DTest=5"));
+            rule.setVariableValueToObject(impactedTestsMojo, "testDurations", durationsFile.toFile());
+            rule.setVariableValueToObject(impactedTestsMojo, "shardCount", 2);
+            List<String> impactedTests = Arrays.asList("com.foo.ATest", "com.foo.BTest", "com.foo.CTest",
+                    "com.foo.DTest");
+            Path workDir = pom.toPath().resolve("target").resolve("covtool");
+
+            // a node without local reports
+            deleteDirectory(reportsDir);
+            List<List<String>> shards = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                rule.setVariableValueToObject(impactedTestsMojo, "shardIndex", i);
+                shards.add(impactedTestsMojo.selectTests(impactedTestsMojo.getLog(), impactedTests, workDir));
+            }
+            // a node whose local reports give other durations
+            Files.createDirectories(reportsDir);
+            Files.write(reportsDir.resolve("TEST-com.foo.DTest.xml"),
+                    "<testsuite><testcase name=\"a\" classname=\"com.foo.DTest\" time=\"20\"/></testsuite>"
+                            .getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < 2; i++) {
+                rule.setVariableValueToObject(impactedTestsMojo, "shardIndex", i);
+                assertEquals(shards.get(i),
+                        impactedTestsMojo.selectTests(impactedTestsMojo.getLog(), impactedTests, workDir));
+            }
+            assertEquals(Arrays.asList("com.foo.ATest", "com.foo.DTest"), shards.get(0));
+            assertEquals(Arrays.asList("com.foo.BTest", "com.foo.CTest"), shards.get(1));
+        } finally {
+            deleteDirectory(reportsDir);
+            Files.delete(durationsFile);
+        }
+    }
+
+    @Test
+    public void testIncrementalScan() throws Exception {
+        File pom = new File("target/test-classes/project-to-test/");
+        Path mockSelenicInstallation = createMockSelenicInstallation();
+        Path appFolder = pom.toPath().resolve("target").resolve("appfolder");
+        Path workDir = pom.toPath().resolve("target").resolve("covtool");
+        Path fingerprintsDir = Files.createTempDirectory("fingerprints");
+        deleteDirectory(appFolder);
+        deleteDirectory(workDir);
+        List<List<String>> commands = new ArrayList<>();
+        // the tests found by each run of the coverage tool
+        List<String> runTests = new ArrayList<>();
+        Process process = mock(Process.class);
+        try (MockedConstruction<ProcessBuilder> processBuilder = mockConstruction(ProcessBuilder.class,
+                withSettings().defaultAnswer(CALLS_REAL_METHODS), (mock, context) -> {
+                    @SuppressWarnings("unchecked")
+                    List<String> command = (List<String>) context.arguments().get(0);
+                    doAnswer(invocation -> {
+                        commands.add(command);
+                        Path listFile = ImpactedTests.getListFile(mock.directory().toPath());
+                        Files.createDirectories(listFile.getParent());
+                        Files.write(listFile, Arrays.asList(runTests.get(commands.size() - 1)));
+                        return process;
+                    }).when(mock).start();
+                })) {
+            // a full scan stores the reference fingerprints and tests
+            compileApp(appFolder, "int a() { return 1; }", "int b() { return 1; }");
+            runTests.add("com.foo.ATest");
+            executeIncrementalScan(pom, mockSelenicInstallation, fingerprintsDir, 1000);
+            assertEquals(1, commands.size());
+            assertThat(String.join(" ", commands.get(0)), containsString("-include **/com/parasoft/**"));
+            Path referenceDir;
+            try (Stream<Path> dirs = Files.list(fingerprintsDir)) {
+                referenceDir = dirs.findFirst().get();
+            }
+            assertTrue(Files.isRegularFile(referenceDir.resolve("classes.fp")));
+            assertEquals(Arrays.asList("com.foo.ATest"), Files.readAllLines(referenceDir.resolve("impacted_tests.lst")));
+
+            // only the changed class is scanned, its tests added to the reference tests
+            compileApp(appFolder, "int a() { return 1; }", "int b() { return 2; }");
+            runTests.add("com.foo.BTest");
+            executeIncrementalScan(pom, mockSelenicInstallation, fingerprintsDir, 1000);
+            assertEquals(2, commands.size());
+            List<String> command = commands.get(1);
+            assertEquals("com/parasoft/app/B", command.get(command.indexOf("-include") + 1));
+            assertEquals(command.indexOf("-include"), command.lastIndexOf("-include"));
+            assertEquals(Arrays.asList("com.foo.ATest", "com.foo.BTest"),
+                    Files.readAllLines(ImpactedTests.getListFile(workDir)));
+            assertEquals(Arrays.asList("com.parasoft.app.B#b"),
+                    Files.readAllLines(AbstractCoverageMojo.getChangedElementsFile(workDir)));
+            assertEquals(Arrays.asList("com.foo.ATest"), Files.readAllLines(referenceDir.resolve("impacted_tests.lst")));
+
+            // more changed classes than the threshold
+            compileApp(appFolder, "int a() { return 2; }", "int b() { return 2; }");
+            runTests.add("com.foo.CTest");
+            executeIncrementalScan(pom, mockSelenicInstallation, fingerprintsDir, 1);
+            assertEquals(3, commands.size());
+            assertThat(String.join(" ", commands.get(2)), containsString("-include **/com/parasoft/**"));
+            assertEquals(Arrays.asList("com.foo.CTest"), Files.readAllLines(ImpactedTests.getListFile(workDir)));
+            assertEquals(Arrays.asList("com.foo.CTest"), Files.readAllLines(referenceDir.resolve("impacted_tests.lst")));
+
+            // a removed class
+            Files.delete(appFolder.resolve("com").resolve("parasoft").resolve("app").resolve("A.class"));
+            runTests.add("com.foo.DTest");
+            executeIncrementalScan(pom, mockSelenicInstallation, fingerprintsDir, 1000);
+            assertEquals(4, commands.size());
+            assertThat(String.join(" ", commands.get(3)), containsString("-include **/com/parasoft/**"));
+            assertEquals(Arrays.asList("com.foo.DTest"), Files.readAllLines(ImpactedTests.getListFile(workDir)));
+        } finally {
+            deleteDirectory(mockSelenicInstallation);
+            deleteDirectory(fingerprintsDir);
+            deleteDirectory(appFolder);
+        }
+    }
+
+    private void executeIncrementalScan(File pom, Path mockSelenicInstallation, Path fingerprintsDir, int maxClasses)
+            throws Exception {
+        ImpactedTestsMojo impactedTestsMojo = (ImpactedTestsMojo) rule.lookupConfiguredMojo(pom, "impacted-tests");
+        rule.setVariableValueToObject(impactedTestsMojo, "selenicHome", mockSelenicInstallation.toFile());
+        rule.setVariableValueToObject(impactedTestsMojo, "incrementalScan", true);
+        rule.setVariableValueToObject(impactedTestsMojo, "incrementalScanMaxClasses", maxClasses);
+        rule.setVariableValueToObject(impactedTestsMojo, "fingerprintsDirectory", fingerprintsDir.toFile());
+        impactedTestsMojo.execute();
+    }
+
+    private static void compileApp(Path appFolder, String methodOfA, String methodOfB) throws IOException {
+        Path sourceDir = Files.createTempDirectory("app-src");
+        try {
+            List<String> sources = new ArrayList<>();
+            for (String[] source : new String[][] { { "A", methodOfA }, { "B", methodOfB } }) {
+                Path file = sourceDir.resolve(source[0] + ".java");
+                Files.write(file, ("package com.parasoft.app;\npublic class " + source[0] + " {\n" + source[1]
+                        + "\n}\n").getBytes(StandardCharsets.UTF_8));
+                sources.add(file.toString());
+            }
+            sources.addAll(0, Arrays.asList("-d", appFolder.toString()));
+            assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, sources.toArray(new String[0])));
+        } finally {
+            deleteDirectory(sourceDir);
+        }
+    }
+
+    private static Path createMockSelenicInstallation() throws IOException {
+        Path mockSelenicInstallation = Files.createTempDirectory("selenic");
+        Files.createFile(mockSelenicInstallation.resolve("selenic_agent.jar"));
+        Files.createFile(mockSelenicInstallation.resolve("selenic_analyzer.jar"));
+        Path mockCovtoolInstallation = mockSelenicInstallation.resolve("coverage").resolve("Java").resolve("jtestcov");
+        Files.createDirectories(mockCovtoolInstallation);
+        Files.createFile(mockCovtoolInstallation.resolve("jtestcov.jar"));
+        return mockSelenicInstallation;
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (Files.exists(dir)) {
+            try (Stream<Path> stream = Files.walk(dir)) {
+                stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
     /** Do not need the MojoRule. */
     @WithoutMojo
     @Test
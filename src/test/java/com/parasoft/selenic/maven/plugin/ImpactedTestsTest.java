@@ -0,0 +1,149 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImpactedTestsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRead() throws Exception {
+        Path lstFile = temporaryFolder.newFile("impacted_tests.lst").toPath();
+        Files.write(lstFile, Arrays.asList("com.foo.BarTest", "", "com.foo.BazTest#test", "com.foo.BarTest"));
+        assertEquals(Arrays.asList("com.foo.BarTest", "com.foo.BazTest#test"), ImpactedTests.read(lstFile));
+    }
+
+    @Test
+    public void testGetTestClassName() {
+        assertEquals("com.foo.BarTest", ImpactedTests.getTestClassName("com.foo.BarTest"));
+        assertEquals("com.foo.BarTest", ImpactedTests.getTestClassName("com/foo/BarTest.java#test"));
+        assertEquals("com.foo.BarTest", ImpactedTests.getTestClassName("com/foo/BarTest.class"));
+    }
+
+    @Test
+    public void testToPatterns() throws Exception {
+        Path testClassesDir = temporaryFolder.newFolder("test-classes").toPath();
+        Path collapsed = Files.createDirectories(testClassesDir.resolve("com/foo/all"));
+        Files.createFile(collapsed.resolve("ATest.class"));
+        Files.createFile(collapsed.resolve("ATest$Inner.class"));
+        Files.createFile(collapsed.resolve("BTest.class"));
+        Path partial = Files.createDirectories(testClassesDir.resolve("com/foo/some"));
+        Files.createFile(partial.resolve("ATest.class"));
+        Files.createFile(partial.resolve("BTest.class"));
+
+        assertEquals(Arrays.asList("com/foo/all/*", "com/foo/MethodsTest#a+b", "com/foo/WholeTest",
+                "com/foo/some/ATest", "com/foo/some/BTest#c"),
+                ImpactedTests.toPatterns(Arrays.asList("com.foo.all.ATest", "com.foo.all.BTest#x",
+                        "com/foo/all/BTest.java", "com.foo.MethodsTest#b", "com.foo.MethodsTest#a",
+                        "com.foo.WholeTest#a", "com.foo.WholeTest", "com.foo.some.ATest", "com.foo.some.BTest#c"),
+                        testClassesDir));
+    }
+
+    @Test
+    public void testApply() throws Exception {
+        Model model = new Model();
+        model.setBuild(new Build());
+        MavenProject project = new MavenProject(model);
+        ImpactedTests.apply(new SystemStreamLog(), project,
+                Arrays.asList("com.foo.BarTest", "com.foo.BarIT#a", "com.foo.Helper"), null);
+        Properties properties = project.getProperties();
+        assertEquals("com/foo/BarTest, com/foo/Helper", properties.getProperty("test"));
+        assertEquals("com/foo/BarIT#a", properties.getProperty("it.test"));
+        assertNull(properties.getProperty("skipITs"));
+
+        // integration tests configured as *Integration
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom includes = new Xpp3Dom("includes");
+        Xpp3Dom include = new Xpp3Dom("include");
+        include.setValue("**/*Integration.java");
+        includes.addChild(include);
+        configuration.addChild(includes);
+        Plugin failsafe = new Plugin();
+        failsafe.setArtifactId("maven-failsafe-plugin");
+        failsafe.setConfiguration(configuration);
+        model = new Model();
+        model.setBuild(new Build());
+        model.getBuild().addPlugin(failsafe);
+        project = new MavenProject(model);
+        Path includesFile = temporaryFolder.getRoot().toPath().resolve("impacted_tests.includes");
+        ImpactedTests.apply(new SystemStreamLog(), project, Arrays.asList("com.foo.BarTest", "com.foo.BarIT"),
+                includesFile);
+        properties = project.getProperties();
+        assertEquals(Arrays.asList("com/foo/BarIT", "com/foo/BarTest"), Files.readAllLines(includesFile));
+        assertEquals(includesFile.toString(), properties.getProperty("surefire.includesFile"));
+        assertNull(properties.getProperty("failsafe.includesFile"));
+        assertEquals("!**/*", properties.getProperty("it.test"));
+        assertEquals("false", properties.getProperty("failsafe.failIfNoSpecifiedTests"));
+        assertEquals("true", properties.getProperty("skipITs"));
+
+        // surefire would add its configured includes to the includes file
+        Plugin surefire = new Plugin();
+        surefire.setArtifactId("maven-surefire-plugin");
+        surefire.setConfiguration(configuration);
+        model = new Model();
+        model.setBuild(new Build());
+        model.getBuild().addPlugin(surefire);
+        project = new MavenProject(model);
+        Files.delete(includesFile);
+        Log log = mock(Log.class);
+        ImpactedTests.apply(log, project, Arrays.asList("com.foo.BarTest", "com.foo.BarIT"), includesFile);
+        properties = project.getProperties();
+        assertFalse(Files.exists(includesFile));
+        assertNull(properties.getProperty("surefire.includesFile"));
+        assertEquals("com/foo/BarTest", properties.getProperty("test"));
+        assertEquals(Arrays.asList("com/foo/BarIT"),
+                Files.readAllLines(ImpactedTests.getIntegrationTestIncludesFile(includesFile)));
+        assertEquals(ImpactedTests.getIntegrationTestIncludesFile(includesFile).toString(),
+                properties.getProperty("failsafe.includesFile"));
+        verify(log).warn(contains(TestPlugins.SUREFIRE));
+    }
+
+    @Test
+    public void testApplyRunOrder() {
+        Model model = new Model();
+        model.setBuild(new Build());
+        MavenProject project = new MavenProject(model);
+        project.getProperties().setProperty("failsafe.runOrder", "alphabetical");
+        ImpactedTests.applyRunOrder(new SystemStreamLog(), project);
+        assertEquals("failedfirst", project.getProperties().getProperty("surefire.runOrder"));
+        assertEquals("alphabetical", project.getProperties().getProperty("failsafe.runOrder"));
+    }
+}
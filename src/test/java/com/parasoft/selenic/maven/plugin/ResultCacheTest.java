@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResultCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndRestore() throws Exception {
+        Path cacheDir = temporaryFolder.getRoot().toPath().resolve("cache");
+        Path listFile = temporaryFolder.getRoot().toPath().resolve("work").resolve("impacted_tests.lst");
+        ResultCache cache = new ResultCache(cacheDir, 1 << 20);
+        assertFalse(cache.restore("key1", listFile));
+
+        Files.createDirectories(listFile.getParent());
+        Files.write(listFile, Arrays.asList("com.foo.BarTest", "com.foo.BazTest"));
+        cache.store("key1", listFile, new Properties());
+        // no impacted tests
+        cache.store("key2", temporaryFolder.getRoot().toPath().resolve("missing.lst"), new Properties());
+
+        Files.delete(listFile);
+        assertTrue(cache.restore("key1", listFile));
+        assertEquals(Arrays.asList("com.foo.BarTest", "com.foo.BazTest"), Files.readAllLines(listFile));
+        assertTrue(cache.restore("key2", listFile));
+        assertEquals(Collections.emptyList(), Files.readAllLines(listFile));
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        Path cacheDir = temporaryFolder.getRoot().toPath().resolve("cache");
+        Path listFile = temporaryFolder.newFile("impacted_tests.lst").toPath();
+        Files.write(listFile, new byte[400]);
+        Properties metadata = new Properties();
+        ResultCache cache = new ResultCache(cacheDir, 1000);
+        cache.store("old", listFile, metadata);
+        Files.setLastModifiedTime(cacheDir.resolve("old.lst"), FileTime.fromMillis(1000));
+        cache.store("used", listFile, metadata);
+        Files.setLastModifiedTime(cacheDir.resolve("used.lst"), FileTime.fromMillis(2000));
+        cache.store("new", listFile, metadata);
+
+        Path restored = temporaryFolder.getRoot().toPath().resolve("restored.lst");
+        assertFalse(cache.restore("old", restored));
+        assertFalse(Files.exists(cacheDir.resolve("old.properties")));
+        assertTrue(cache.restore("used", restored));
+        assertTrue(cache.restore("new", restored));
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        ResultCache cache = new ResultCache(temporaryFolder.getRoot().toPath(), 1000);
+        cache.count(false);
+        cache.count(true);
+        Properties stats = cache.count(true);
+        assertEquals(2, ResultCache.getCount(stats, ResultCache.HITS));
+        assertEquals(1, ResultCache.getCount(stats, ResultCache.MISSES));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+public class ScanPartitionsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompute() throws Exception {
+        File app = temporaryFolder.newFolder("app");
+        writeClasses(app, "com/a/A1", "com/a/A2", "com/a/A3", "com/a/A4", "com/b/B1", "com/b/B2", "com/c/C1",
+                "com/c/C2", "com/c/CLogger", "Main");
+
+        ScanPartitions partitions = ScanPartitions.compute(app, null, Arrays.asList("**/*Logger"), 2);
+        assertEquals(9, partitions.getClassCount());
+        // com/a 4 -> 0, com/b 2 -> 1, com/c 2 -> 1, default package 1 -> 0
+        assertEquals(Arrays.asList(Arrays.asList("com/a/*", "*"), Arrays.asList("com/b/*", "com/c/C1", "com/c/C2")),
+                partitions.getIncludes());
+        assertEquals(Arrays.asList("**/*Logger", "com/a/*", "*", "com/b/*", "com/c/C1", "com/c/C2"),
+                partitions.getRemainderExcludes());
+
+        partitions = ScanPartitions.compute(app, Arrays.asList("com/b/**"), null, 4);
+        assertEquals(Collections.singletonList(Collections.singletonList("com/b/*")), partitions.getIncludes());
+        assertEquals(Collections.singletonList("com/b/*"), partitions.getRemainderExcludes());
+    }
+
+    private static void writeClasses(File dir, String... classNames) throws Exception {
+        for (String className : classNames) {
+            ClassWriter writer = new ClassWriter(0);
+            writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+            writer.visitEnd();
+            Path classFile = dir.toPath().resolve(className + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, writer.toByteArray());
+        }
+    }
+}
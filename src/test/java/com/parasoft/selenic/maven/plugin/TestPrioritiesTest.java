@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestPrioritiesTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompute() throws Exception {
+        Path reportsDir = temporaryFolder.newFolder("surefire-reports").toPath();
+        Files.write(reportsDir.resolve("TEST-com.foo.ATest.xml"), ("<testsuite>"
+                + "<testcase name=\"a\" classname=\"com.foo.ATest\" time=\"1\"/>"
+                + "</testsuite>").getBytes(UTF_8));
+        Files.write(reportsDir.resolve("TEST-com.foo.BTest.xml"), ("<testsuite>"
+                + "<testcase name=\"a\" classname=\"com.foo.BTest\" time=\"4\"><failure message=\"x\"/></testcase>"
+                + "<testcase name=\"b\" classname=\"com.foo.BTest\" time=\"4\"/>"
+                + "</testsuite>").getBytes(UTF_8));
+        Files.write(reportsDir.resolve("TEST-com.foo.CTest.xml"), ("<testsuite>"
+                + "<testcase name=\"a\" classname=\"com.foo.CTest\" time=\"2\"/>"
+                + "</testsuite>").getBytes(UTF_8));
+        Files.write(reportsDir.resolve("TEST-com.foo.DTest.xml"), ("<testsuite>"
+                + "<testcase name=\"a\" classname=\"com.foo.DTest\" time=\"3\"/>"
+                + "</testsuite>").getBytes(UTF_8));
+        TestHistory history = new TestHistory();
+        history.readReports(reportsDir);
+        assertEquals(1, history.getFailures("com.foo.BTest"));
+        assertEquals(0, history.getFailures("com.foo.ATest"));
+
+        Map<String, Integer> changedCoverage = new HashMap<>();
+        changedCoverage.put("com.foo.DTest#a", 1);
+        changedCoverage.put("com.foo.DTest#b", 1);
+        changedCoverage.put("com.foo.CTest", 1);
+        List<String> impactedTests = Arrays.asList("com.foo.ATest", "com.foo.BTest", "com.foo.CTest#a",
+                "com.foo.DTest#a", "com.foo.DTest#b");
+        TestPriorities priorities = TestPriorities.compute(impactedTests, changedCoverage, history);
+        // DTest covers 2 changes, CTest 1, BTest failed, ATest is the shortest
+        assertEquals(Arrays.asList("com.foo.DTest", "com.foo.CTest", "com.foo.BTest", "com.foo.ATest"),
+                priorities.getClassNames());
+        assertEquals(Arrays.asList("com.foo.DTest#a", "com.foo.DTest#b", "com.foo.CTest#a"),
+                priorities.select(impactedTests, 2));
+        assertEquals(2, priorities.countWithinBudget(7));
+        assertEquals(1, priorities.countWithinBudget(1));
+        assertEquals(4, priorities.countWithinBudget(100));
+        assertEquals(5.0, priorities.getDuration(2), 0.001);
+    }
+}
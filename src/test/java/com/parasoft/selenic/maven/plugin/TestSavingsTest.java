@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestSavingsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompute() throws Exception {
+        Path root = temporaryFolder.getRoot().toPath();
+        Path selectionFile = root.resolve("selenic").resolve(TestSavings.SELECTION_FILE);
+        TestSavings.writeSelection(selectionFile, Arrays.asList("com.foo.ATest#a", "com.foo.ATest#b", "com.foo.BTest"),
+                2500);
+        Path durationsFile = root.resolve("durations.properties");
+        Files.write(durationsFile, Arrays.asList("com.foo.ATest=4", "com.foo.BTest=2", "com.foo.CTest=10"));
+        TestHistory history = new TestHistory();
+        history.readDurationsFile(durationsFile);
+
+        TestSavings savings = TestSavings.compute(selectionFile,
+                Arrays.asList("com.foo.ATest", "com.foo.BTest", "com.foo.CTest", "com.foo.DTest"), history);
+        assertEquals(2, savings.getSelectedTests());
+        assertEquals(4, savings.getTotalTests());
+        assertEquals(6, savings.getSelectedSeconds(), 0.001);
+        // DTest has no duration yet and counts for the mean duration
+        assertEquals(10 + 16 / 3.0, savings.getSkippedSeconds(), 0.001);
+        assertEquals(2.5, savings.getAnalysisSeconds(), 0.001);
+        assertEquals(10 + 16 / 3.0 - 2.5, savings.getNetSeconds(), 0.001);
+
+        history.writeDurationsFile(durationsFile, savings.getTestClasses());
+        assertEquals(Arrays.asList("com.foo.ATest=4.0", "com.foo.BTest=2.0", "com.foo.CTest=10.0"),
+                Files.readAllLines(durationsFile));
+    }
+
+    @Test
+    public void testTrend() throws Exception {
+        Path root = temporaryFolder.getRoot().toPath();
+        Path trendFile = root.resolve("history").resolve("test-savings.csv");
+        Path durationsFile = root.resolve("durations.properties");
+        Files.write(durationsFile, Arrays.asList("com.foo.ATest=1", "com.foo.BTest=30"));
+        TestHistory history = new TestHistory();
+        history.readDurationsFile(durationsFile);
+        List<String> testSuite = Arrays.asList("com.foo.ATest", "com.foo.BTest");
+
+        for (int i = 0; i < 3; i++) {
+            Path selectionFile = root.resolve("selection" + i + ".properties");
+            TestSavings.writeSelection(selectionFile, Arrays.asList("com.foo.ATest"), 60000 * i);
+            Thread.sleep(5);
+            TestSavings savings = TestSavings.compute(selectionFile, testSuite, history);
+            assertTrue(savings.appendTo(trendFile));
+            // the same build is appended once
+            assertFalse(savings.appendTo(trendFile));
+        }
+        assertEquals(4, Files.readAllLines(trendFile).size());
+
+        List<TestSavings> trend = TestSavings.readTrend(trendFile, 2);
+        assertEquals(2, trend.size());
+        assertEquals(60, trend.get(0).getAnalysisSeconds(), 0.001);
+        assertEquals(120, trend.get(1).getAnalysisSeconds(), 0.001);
+        assertEquals(1, trend.get(1).getSelectedTests());
+        assertEquals(2, trend.get(1).getTotalTests());
+        assertEquals(30, trend.get(1).getSkippedSeconds(), 0.001);
+        assertTrue(trend.get(1).getNetSeconds() < 0);
+    }
+}
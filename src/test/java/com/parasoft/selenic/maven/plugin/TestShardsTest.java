@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestShardsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompute() throws Exception {
+        Path durationsFile = temporaryFolder.newFile("durations.properties").toPath();
+        Files.write(durationsFile, Arrays.asList("com.foo.ATest=10", "com.foo.BTest=7", "com.foo.CTest=6",
+                "com.foo.DTest=5", "com.foo.ETest=4"));
+        Path reportsDir = temporaryFolder.newFolder("surefire-reports").toPath();
+        Files.write(reportsDir.resolve("TEST-com.foo.ETest.xml"), ("<testsuite>"
+                + "<testcase name=\"a\" classname=\"com.foo.ETest\" time=\"1.5\"/>"
+                + "<testcase name=\"b\" classname=\"com.foo.ETest\" time=\"1.5\"/>"
+                + "</testsuite>").getBytes(UTF_8));
+        TestHistory history = new TestHistory();
+        history.readDurationsFile(durationsFile);
+        history.readReports(reportsDir);
+        assertEquals(3.0, history.getDuration("com.foo.ETest"), 0.001);
+
+        List<String> impactedTests = Arrays.asList("com.foo.ETest", "com.foo.DTest#x", "com.foo.CTest",
+                "com.foo.BTest", "com.foo.ATest", "com.foo.DTest#y");
+        TestShards shards = TestShards.compute(impactedTests, history, 2);
+        // ATest 10 -> 0, BTest 7 -> 1, CTest 6 -> 1, DTest 5 -> 0, ETest 3 -> 1
+        assertEquals(Arrays.asList("com.foo.DTest#x", "com.foo.ATest", "com.foo.DTest#y"),
+                shards.select(impactedTests, 0));
+        assertEquals(Arrays.asList("com.foo.ETest", "com.foo.CTest", "com.foo.BTest"),
+                shards.select(impactedTests, 1));
+        assertEquals(15.0, shards.getDuration(0), 0.001);
+        assertEquals(16.0, shards.getDuration(1), 0.001);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2023 Parasoft Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.parasoft.selenic.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+
+public class WatchMojoTest {
+    @Test
+    public void testParseCommand() throws Exception {
+        assertTrue(WatchMojo.parseCommand(null).isEmpty());
+        assertTrue(WatchMojo.parseCommand("  ").isEmpty());
+        assertEquals(Arrays.asList("mvn.cmd", "-o", "surefire:test"),
+                WatchMojo.parseCommand(" mvn.cmd  -o surefire:test "));
+        assertEquals(Arrays.asList("mvn", "-DargLine=-Xmx1g -ea", "-Dgroups=fast"),
+                WatchMojo.parseCommand("mvn '-DargLine=-Xmx1g -ea' \"-Dgroups=fast\""));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testParseUnbalancedCommand() throws Exception {
+        WatchMojo.parseCommand("mvn \"-DargLine=-Xmx1g");
+    }
+}